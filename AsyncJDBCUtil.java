@@ -0,0 +1,322 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous facade over JDBCUtil. Query, update and batch calls return a CompletableFuture,
+ * so independent statements against pooled hosts can overlap instead of running one after another.
+ *
+ * Each call borrows a connection from the host's ConnectionPool for its duration. At most
+ * maxConcurrentPerHost statements per host are in flight at once; further calls wait for a permit
+ * on their executor thread. A call that times out or whose future is cancelled has its running
+ * statement cancelled through Statement.cancel, and the connection is rolled back when it returns
+ * to the pool.
+ *
+ * By default calls run on virtual threads when the JVM provides them (Java 21+), otherwise on a
+ * cached pool of daemon threads. A caller-supplied executor is not shut down by {@link #close()}.
+ */
+public class AsyncJDBCUtil implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("AsyncJDBCUtil");
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "async-jdbc-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxConcurrentPerHost;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a facade running calls on virtual threads where available.
+     *
+     * @param maxConcurrentPerHost The maximum number of in-flight statements per host
+     */
+    public AsyncJDBCUtil(int maxConcurrentPerHost) {
+        this(defaultExecutor(), maxConcurrentPerHost, true);
+    }
+
+    /**
+     * Creates a facade running calls on the given executor, which the caller keeps ownership of.
+     *
+     * @param executor             The executor running the blocking JDBC calls
+     * @param maxConcurrentPerHost The maximum number of in-flight statements per host
+     */
+    public AsyncJDBCUtil(ExecutorService executor, int maxConcurrentPerHost) {
+        this(executor, maxConcurrentPerHost, false);
+    }
+
+    private AsyncJDBCUtil(ExecutorService executor, int maxConcurrentPerHost, boolean ownsExecutor) {
+        if (maxConcurrentPerHost <= 0) {
+            throw new IllegalArgumentException("maxConcurrentPerHost must be positive: " + maxConcurrentPerHost);
+        }
+        this.executor = executor;
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Executes a parameterized SELECT query asynchronously.
+     *
+     * @param host       The host to borrow a pooled connection from
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @param handler    A ResultSetHandler to process the ResultSet
+     * @param <T>        The type of the processed result
+     * @return A future completed with the processed result
+     */
+    public <T> CompletableFuture<T> executeQuery(String host, String sql, Map<Integer, SqlParameter> parameters, ResultSetHandler<T> handler) {
+        return executeQuery(host, sql, parameters, handler, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes a parameterized SELECT query asynchronously, failing with a TimeoutException and
+     * cancelling the statement if it has not completed within the timeout.
+     *
+     * @param host       The host to borrow a pooled connection from
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @param handler    A ResultSetHandler to process the ResultSet
+     * @param timeout    The time allowed from submission to completion, or 0 for none
+     * @param unit       The unit of timeout
+     * @param <T>        The type of the processed result
+     * @return A future completed with the processed result
+     */
+    public <T> CompletableFuture<T> executeQuery(String host, String sql, Map<Integer, SqlParameter> parameters, ResultSetHandler<T> handler, long timeout, TimeUnit unit) {
+        return submit(host, timeout, unit, (conn, running) ->
+                JDBCUtil.query(conn, sql, pstmt -> {
+                    JDBCUtil.setParameters(pstmt, parameters);
+                    running.start(pstmt);
+                }, handler));
+    }
+
+    /**
+     * Executes a parameterized DML query (INSERT, UPDATE, DELETE) asynchronously.
+     *
+     * @param host       The host to borrow a pooled connection from
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @return A future completed with the number of rows affected
+     */
+    public CompletableFuture<Integer> executeUpdate(String host, String sql, Map<Integer, SqlParameter> parameters) {
+        return executeUpdate(host, sql, parameters, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes a parameterized DML query asynchronously with a timeout.
+     *
+     * @see #executeQuery(String, String, Map, ResultSetHandler, long, TimeUnit)
+     */
+    public CompletableFuture<Integer> executeUpdate(String host, String sql, Map<Integer, SqlParameter> parameters, long timeout, TimeUnit unit) {
+        return submit(host, timeout, unit, (conn, running) ->
+                JDBCUtil.update(conn, sql, pstmt -> {
+                    JDBCUtil.setParameters(pstmt, parameters);
+                    running.start(pstmt);
+                }));
+    }
+
+    /**
+     * Executes a batch statement asynchronously, sending batchSize rows per executeBatch call.
+     * The rows run in the connection's default auto-commit mode.
+     *
+     * @param host        The host to borrow a pooled connection from
+     * @param sql         The SQL statement to execute in batch
+     * @param batchParams A list of parameter maps, one per row
+     * @param batchSize   The number of rows to include in each batch execution
+     * @return A future completed with the update counts of all rows
+     */
+    public CompletableFuture<int[]> executeInBatch(String host, String sql, List<Map<Integer, SqlParameter>> batchParams, int batchSize) {
+        return executeInBatch(host, sql, batchParams, batchSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes a batch statement asynchronously with a timeout.
+     *
+     * @see #executeQuery(String, String, Map, ResultSetHandler, long, TimeUnit)
+     */
+    public CompletableFuture<int[]> executeInBatch(String host, String sql, List<Map<Integer, SqlParameter>> batchParams, int batchSize, long timeout, TimeUnit unit) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        return submit(host, timeout, unit, (conn, running) -> executeBatch(conn, sql, batchParams, batchSize, running));
+    }
+
+    /**
+     * Returns the number of statements currently holding a permit for the host.
+     */
+    public int getInFlight(String host) {
+        Semaphore semaphore = permits.get(host);
+        return semaphore == null ? 0 : maxConcurrentPerHost - semaphore.availablePermits();
+    }
+
+    /**
+     * Shuts down the executor if this facade created it. Calls already submitted still run.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String host, long timeout, TimeUnit unit, Call<T> call) {
+        RunningStatement running = new RunningStatement();
+        CompletableFuture<T> future = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    running.cancel();
+                }
+                return cancelled;
+            }
+        };
+        Semaphore semaphore = permits.computeIfAbsent(host, h -> new Semaphore(maxConcurrentPerHost, true));
+
+        try {
+            executor.execute(() -> run(host, semaphore, call, running, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        if (timeout > 0) {
+            ScheduledFuture<?> timer = TIMER.schedule(() -> {
+                if (future.completeExceptionally(new TimeoutException("Statement on " + host + " did not complete within " + timeout + " " + unit))) {
+                    running.cancel();
+                }
+            }, timeout, unit);
+            future.whenComplete((result, error) -> timer.cancel(false));
+        }
+        return future;
+    }
+
+    private <T> void run(String host, Semaphore semaphore, Call<T> call, RunningStatement running, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            return; // Cancelled or timed out while queued
+        }
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            if (future.isDone()) {
+                return;
+            }
+            try (Connection conn = JDBCUtil.getConnection(host)) {
+                future.complete(call.execute(conn, running));
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            running.finish();
+            semaphore.release();
+        }
+    }
+
+    private static int[] executeBatch(Connection conn, String sql, List<Map<Integer, SqlParameter>> batchParams, int batchSize, RunningStatement running) throws SQLException {
+        try (StatementCache.Lease lease = StatementCache.lease(conn, sql)) {
+            PreparedStatement pstmt = lease.getStatement();
+            running.start(pstmt);
+            int[] updateCounts = new int[batchParams.size()];
+            int written = 0;
+            int pending = 0;
+
+            for (Map<Integer, SqlParameter> parameters : batchParams) {
+                JDBCUtil.setParameters(pstmt, parameters);
+                pstmt.addBatch();
+                if (++pending == batchSize) {
+                    written = executeBatch(sql, pstmt, pending, updateCounts, written);
+                    pending = 0;
+                }
+            }
+
+            // Execute remaining rows
+            if (pending > 0) {
+                executeBatch(sql, pstmt, pending, updateCounts, written);
+            }
+            return updateCounts;
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    private static int executeBatch(String sql, PreparedStatement pstmt, int pending, int[] updateCounts, int offset) throws SQLException {
+        int[] counts = BatchInserts.executeBatch(sql, pstmt, pending);
+        System.arraycopy(counts, 0, updateCounts, offset, Math.min(counts.length, updateCounts.length - offset));
+        return offset + counts.length;
+    }
+
+    /**
+     * Returns an executor starting one virtual thread per task on Java 21 or later, and one
+     * cached daemon platform thread per concurrent task before that.
+     */
+    static ExecutorService defaultExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21 on
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "async-jdbc");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T execute(Connection conn, RunningStatement running) throws SQLException;
+    }
+
+    /**
+     * Tracks the statement a call is executing so a timeout or cancellation can interrupt it.
+     */
+    private static final class RunningStatement {
+        private Statement statement;
+        private boolean cancelled;
+
+        synchronized void start(Statement statement) throws SQLException {
+            if (cancelled) {
+                throw new SQLException("Statement cancelled before execution");
+            }
+            this.statement = statement;
+        }
+
+        synchronized void finish() {
+            statement = null;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Statement.cancel failed", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Batch execution and transaction handling shared by the bulk insert paths: CSVUtil's CSV
+ * imports, BinarySnapshot and the bulk-load strategies. JDBCUtil's and AsyncJDBCUtil's batch
+ * methods share the metrics-recording {@link #executeBatch}.
+ */
+final class BatchInserts {
+
+    private BatchInserts() {
+    }
+
+    /**
+     * Executes the pending batch of a statement, recording its size and latency in JdbcMetrics.
+     *
+     * @param sql       The SQL statement of the batch
+     * @param statement The statement holding the pending batch
+     * @param rows      The number of rows in the batch
+     * @return The update counts of the batch
+     * @throws SQLException if the batch fails
+     */
+    static int[] executeBatch(String sql, PreparedStatement statement, int rows) throws SQLException {
+        long start = JdbcMetrics.start();
+        try {
+            int[] counts = statement.executeBatch();
+            JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordBatch(sql, rows);
+            JdbcMetrics.recordRows(sql, rows);
+            return counts;
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts loading into a table. When commitInterval is positive the load manages its own
+     * transaction: auto-commit is switched off until {@link Transaction#end()}, and commits
+     * happen every commitInterval rows and at the end. Otherwise the caller's transaction
+     * mode is left alone and nothing is committed or rolled back.
+     *
+     * @param connection     The JDBC Connection
+     * @param sql            The statement being executed, for metrics
+     * @param targetTable    The table loaded into, whose cached results are invalidated at the end
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit
+     * @return The transaction of the load; {@link Transaction#end()} must be called in a finally block
+     * @throws SQLException if auto-commit cannot be switched off
+     */
+    static Transaction begin(Connection connection, String sql, String targetTable, int commitInterval) throws SQLException {
+        boolean manage = commitInterval > 0;
+        boolean restoreAutoCommit = manage && connection.getAutoCommit();
+        if (restoreAutoCommit) {
+            connection.setAutoCommit(false);
+        }
+        return new Transaction(connection, sql, targetTable, commitInterval, restoreAutoCommit);
+    }
+
+    /**
+     * The transaction of one load, counting the batches, commits and rows not yet committed.
+     */
+    static final class Transaction {
+        private final Connection connection;
+        private final String sql;
+        private final String targetTable;
+        private final int commitInterval;       // 0 when the caller owns the transaction
+        private final boolean restoreAutoCommit;
+        private long batches;
+        private long commits;
+        private long uncommitted;
+
+        private Transaction(Connection connection, String sql, String targetTable, int commitInterval, boolean restoreAutoCommit) {
+            this.connection = connection;
+            this.sql = sql;
+            this.targetTable = targetTable;
+            this.commitInterval = Math.max(commitInterval, 0);
+            this.restoreAutoCommit = restoreAutoCommit;
+        }
+
+        /**
+         * Executes the pending batch of the statement and counts its rows as uncommitted.
+         */
+        int[] executeBatch(PreparedStatement statement, int rows) throws SQLException {
+            int[] counts = BatchInserts.executeBatch(sql, statement, rows);
+            batches++;
+            uncommitted += rows;
+            return counts;
+        }
+
+        /**
+         * Whether the load manages its transaction and commitInterval rows are uncommitted.
+         */
+        boolean isCommitDue() {
+            return commitInterval > 0 && uncommitted >= commitInterval;
+        }
+
+        /**
+         * Commits if the load manages its transaction; does nothing otherwise.
+         */
+        void commit() throws SQLException {
+            if (commitInterval > 0) {
+                connection.commit();
+                commits++;
+                uncommitted = 0;
+            }
+        }
+
+        /**
+         * Rolls back if the load manages its transaction, adding a failed rollback to the
+         * exception that caused it.
+         *
+         * @param cause The failure that ends the load
+         */
+        void rollback(Throwable cause) {
+            if (commitInterval > 0) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+
+        /**
+         * Invalidates cached results of the target table and restores auto-commit.
+         */
+        void end() throws SQLException {
+            QueryResultCache.invalidateTableEverywhere(targetTable);
+            if (restoreAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        long getBatches() {
+            return batches;
+        }
+
+        long getCommits() {
+            return commits;
+        }
+
+        long getUncommitted() {
+            return uncommitted;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+public class BatchResult {
+    private final boolean collectUpdateCounts; // Whether per-row update counts are kept
+    private int[] updateCounts;               // Growable buffer of per-row update counts
+    private int updateCountSize;
+    private long[] failedRows;                // Growable buffer of failed row indexes
+    private int failedRowCount;
+    private SQLException firstFailure;        // The first row failure, for diagnosis
+    private long rowsProcessed;
+    private long rowsUpdated;
+    private long batchesExecuted;
+    private long commits;
+
+    public BatchResult(boolean collectUpdateCounts) {
+        this.collectUpdateCounts = collectUpdateCounts;
+        this.updateCounts = collectUpdateCounts ? new int[1024] : null;
+        this.failedRows = new long[16];
+    }
+
+    /**
+     * Returns the update count of every row in input order, or null if only a summary was collected.
+     */
+    public int[] getUpdateCounts() {
+        return collectUpdateCounts ? Arrays.copyOf(updateCounts, updateCountSize) : null;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    /**
+     * Returns the sum of the known update counts; rows reported as SUCCESS_NO_INFO are not included.
+     */
+    public long getRowsUpdated() {
+        return rowsUpdated;
+    }
+
+    public long getBatchesExecuted() {
+        return batchesExecuted;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public long getFailedRowCount() {
+        return failedRowCount;
+    }
+
+    /**
+     * Returns the zero-based input positions of the rows that failed.
+     */
+    public long[] getFailedRows() {
+        return Arrays.copyOf(failedRows, failedRowCount);
+    }
+
+    public SQLException getFirstFailure() {
+        return firstFailure;
+    }
+
+    void addUpdateCounts(int[] counts, int length) {
+        for (int i = 0; i < length; i++) {
+            addUpdateCount(counts[i]);
+        }
+    }
+
+    void addUpdateCount(int count) {
+        rowsProcessed++;
+        if (count > 0) {
+            rowsUpdated += count;
+        } else if (count == Statement.EXECUTE_FAILED) {
+            addFailedRow(rowsProcessed - 1, null);
+        }
+        if (collectUpdateCounts) {
+            if (updateCountSize == updateCounts.length) {
+                updateCounts = Arrays.copyOf(updateCounts, updateCounts.length * 2);
+            }
+            updateCounts[updateCountSize++] = count;
+        }
+    }
+
+    void addFailure(SQLException failure) {
+        addFailedRow(rowsProcessed, failure);
+        rowsProcessed++;
+        if (collectUpdateCounts) {
+            if (updateCountSize == updateCounts.length) {
+                updateCounts = Arrays.copyOf(updateCounts, updateCounts.length * 2);
+            }
+            updateCounts[updateCountSize++] = Statement.EXECUTE_FAILED;
+        }
+    }
+
+    void batchExecuted() {
+        batchesExecuted++;
+    }
+
+    void committed() {
+        commits++;
+    }
+
+    /**
+     * Appends another result, as if its rows followed the rows of this one.
+     */
+    void append(BatchResult other) {
+        long offset = rowsProcessed;
+        if (collectUpdateCounts && other.collectUpdateCounts) {
+            if (updateCountSize + other.updateCountSize > updateCounts.length) {
+                updateCounts = Arrays.copyOf(updateCounts, Math.max(updateCounts.length * 2, updateCountSize + other.updateCountSize));
+            }
+            System.arraycopy(other.updateCounts, 0, updateCounts, updateCountSize, other.updateCountSize);
+            updateCountSize += other.updateCountSize;
+        }
+        for (int i = 0; i < other.failedRowCount; i++) {
+            addFailedRow(offset + other.failedRows[i], null);
+        }
+        if (firstFailure == null) {
+            firstFailure = other.firstFailure;
+        }
+        rowsProcessed += other.rowsProcessed;
+        rowsUpdated += other.rowsUpdated;
+        batchesExecuted += other.batchesExecuted;
+        commits += other.commits;
+    }
+
+    private void addFailedRow(long row, SQLException failure) {
+        if (failedRowCount == failedRows.length) {
+            failedRows = Arrays.copyOf(failedRows, failedRows.length * 2);
+        }
+        failedRows[failedRowCount++] = row;
+        if (firstFailure == null && failure != null) {
+            firstFailure = failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+               "rowsProcessed=" + rowsProcessed +
+               ", rowsUpdated=" + rowsUpdated +
+               ", batchesExecuted=" + batchesExecuted +
+               ", commits=" + commits +
+               ", failedRows=" + failedRowCount +
+               '}';
+    }
+}
@@ -0,0 +1,596 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A typed, column-oriented binary alternative to the CSV export of CSVUtil.
+ *
+ * Values are written as they come from the driver (getLong, getDouble, getDate, ...) and bound
+ * back with the matching setter, so a table-to-table transfer never converts through text.
+ *
+ * Layout: the magic bytes {@code 00 'S' 'N' 'P'} and a version byte, then the column count and
+ * each column's label, value kind and java.sql.Types code. Rows follow in row groups of up to
+ * {@value #ROW_GROUP_SIZE} rows, each a row count followed by one block per column, and a row
+ * count of 0 ends the snapshot. A block starts with an optional null bitmap and then holds the
+ * non-null values:
+ * <ul>
+ *   <li>integers, booleans and dates (as epoch days) as zigzag varints</li>
+ *   <li>floating point numbers as 8-byte IEEE doubles</li>
+ *   <li>decimals as scale and unscaled two's-complement bytes</li>
+ *   <li>timestamps as epoch seconds and nanoseconds</li>
+ *   <li>strings as length-prefixed UTF-8, dictionary encoded when at most half of a block's values are distinct</li>
+ *   <li>binary values as length-prefixed bytes</li>
+ * </ul>
+ * Columns of other types are stored as strings through getString.
+ */
+public final class BinarySnapshot {
+
+    public static final int ROW_GROUP_SIZE = 8192;
+
+    private static final byte[] MAGIC = { 0, 'S', 'N', 'P' };
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte KIND_LONG = 0;
+    private static final byte KIND_DOUBLE = 1;
+    private static final byte KIND_DECIMAL = 2;
+    private static final byte KIND_BOOLEAN = 3;
+    private static final byte KIND_DATE = 4;
+    private static final byte KIND_TIMESTAMP = 5;
+    private static final byte KIND_STRING = 6;
+    private static final byte KIND_BYTES = 7;
+
+    private static final byte NO_NULLS = 0;
+    private static final byte NULL_BITMAP = 1;
+    private static final byte PLAIN = 0;
+    private static final byte DICTIONARY = 1;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Writes all rows of a ResultSet as a snapshot, one row group at a time.
+     *
+     * @param resultSet The ResultSet to export
+     * @param out       The stream receiving the snapshot; flushed but not closed
+     * @return The number of rows written
+     * @throws SQLException if the ResultSet cannot be read
+     * @throws IOException  if the stream cannot be written
+     */
+    public static long write(ResultSet resultSet, OutputStream out) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        writeVarint(data, columnCount);
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int sqlType = metaData.getColumnType(i + 1);
+            columns[i] = new Column(metaData.getColumnLabel(i + 1), kindOf(sqlType), sqlType);
+            writeString(data, columns[i].name);
+            data.writeByte(columns[i].kind);
+            writeVarint(data, sqlType);
+        }
+
+        long rows = 0;
+        int groupRows = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                columns[i].read(resultSet, i + 1, groupRows);
+            }
+            rows++;
+            if (++groupRows == ROW_GROUP_SIZE) {
+                writeRowGroup(data, columns, groupRows);
+                groupRows = 0;
+            }
+        }
+        if (groupRows > 0) {
+            writeRowGroup(data, columns, groupRows);
+        }
+        writeVarint(data, 0);
+        data.flush();
+        return rows;
+    }
+
+    /**
+     * Runs a query and streams its result as a snapshot.
+     *
+     * @param connection The JDBC Connection
+     * @param query      The SELECT query to export
+     * @param fetchSize  The number of rows the driver should fetch per round trip
+     * @param out        The stream receiving the snapshot; flushed but not closed
+     * @return The number of rows written
+     * @throws SQLException if the query fails
+     * @throws IOException  if the stream cannot be written
+     */
+    public static long exportQuery(Connection connection, String query, int fetchSize, OutputStream out) throws SQLException, IOException {
+        long start = JdbcMetrics.start();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(fetchSize);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                start = JdbcMetrics.record(query, JdbcMetrics.Phase.EXECUTE, start);
+                long rows = write(resultSet, out);
+                JdbcMetrics.record(query, JdbcMetrics.Phase.FETCH, start);
+                JdbcMetrics.recordRows(query, rows);
+                return rows;
+            }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(query);
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the rows of a snapshot into a table whose columns have the snapshot's column
+     * labels, binding every value with its typed setter.
+     *
+     * @param connection     The JDBC Connection
+     * @param in             The snapshot stream; read to the end but not closed
+     * @param targetTable    The table to insert into
+     * @param batchSize      The number of rows sent per executeBatch call
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit
+     * @return Row count and throughput of the load
+     * @throws SQLException if the inserts fail
+     * @throws IOException  if the stream is not a valid snapshot
+     */
+    public static CSVImportStats load(Connection connection, InputStream in, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        long start = System.nanoTime();
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        Column[] columns = readHeader(data);
+        List<String> names = new ArrayList<>(columns.length);
+        for (Column column : columns) {
+            names.add(column.name);
+        }
+        String insertSQL = "INSERT INTO " + targetTable + " (" + String.join(", ", names)
+                + ") VALUES (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+
+        BatchInserts.Transaction transaction = BatchInserts.begin(connection, insertSQL, targetTable, commitInterval);
+        long rows = 0;
+        int pending = 0;
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSQL)) {
+            int groupRows;
+            while ((groupRows = readVarint(data)) > 0) {
+                for (Column column : columns) {
+                    column.readBlock(data, groupRows);
+                }
+                for (int row = 0; row < groupRows; row++) {
+                    for (int i = 0; i < columns.length; i++) {
+                        columns[i].bind(insertStatement, i + 1, row);
+                    }
+                    insertStatement.addBatch();
+                    rows++;
+
+                    if (++pending == batchSize) {
+                        transaction.executeBatch(insertStatement, pending);
+                        pending = 0;
+
+                        if (transaction.isCommitDue()) {
+                            transaction.commit();
+                        }
+                    }
+                }
+            }
+
+            // Flush the last partial batch
+            if (pending > 0) {
+                transaction.executeBatch(insertStatement, pending);
+            }
+            transaction.commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+            transaction.rollback(e);
+            throw e;
+        } finally {
+            transaction.end();
+        }
+
+        return new CSVImportStats(rows, transaction.getBatches(), transaction.getCommits(), System.nanoTime() - start);
+    }
+
+    private static Column[] readHeader(DataInputStream data) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary snapshot");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        Column[] columns = new Column[readVarint(data)];
+        for (int i = 0; i < columns.length; i++) {
+            String name = readString(data);
+            byte kind = data.readByte();
+            columns[i] = new Column(name, kind, readVarint(data));
+        }
+        return columns;
+    }
+
+    private static byte kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return KIND_LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return KIND_DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return KIND_DECIMAL;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return KIND_BOOLEAN;
+            case Types.DATE:
+                return KIND_DATE;
+            case Types.TIMESTAMP:
+                return KIND_TIMESTAMP;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return KIND_BYTES;
+            default:
+                return KIND_STRING;
+        }
+    }
+
+    private static void writeRowGroup(DataOutputStream data, Column[] columns, int groupRows) throws IOException {
+        writeVarint(data, groupRows);
+        for (Column column : columns) {
+            column.writeBlock(data, groupRows);
+        }
+    }
+
+    /**
+     * One column's values for the current row group, held in primitive arrays.
+     */
+    private static final class Column {
+        private final String name;
+        private final byte kind;
+        private final int sqlType;
+        private final boolean[] nulls = new boolean[ROW_GROUP_SIZE];
+        private long[] longs;       // LONG, BOOLEAN, DATE (epoch day), TIMESTAMP (epoch second)
+        private int[] nanos;        // TIMESTAMP nanoseconds
+        private double[] doubles;   // DOUBLE
+        private Object[] objects;   // DECIMAL, STRING, BYTES
+
+        private Column(String name, byte kind, int sqlType) {
+            this.name = name;
+            this.kind = kind;
+            this.sqlType = sqlType;
+            switch (kind) {
+                case KIND_DOUBLE:
+                    doubles = new double[ROW_GROUP_SIZE];
+                    break;
+                case KIND_DECIMAL:
+                case KIND_STRING:
+                case KIND_BYTES:
+                    objects = new Object[ROW_GROUP_SIZE];
+                    break;
+                case KIND_TIMESTAMP:
+                    nanos = new int[ROW_GROUP_SIZE];
+                    longs = new long[ROW_GROUP_SIZE];
+                    break;
+                default:
+                    longs = new long[ROW_GROUP_SIZE];
+                    break;
+            }
+        }
+
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            switch (kind) {
+                case KIND_LONG:
+                    longs[row] = rs.getLong(index);
+                    break;
+                case KIND_DOUBLE:
+                    doubles[row] = rs.getDouble(index);
+                    break;
+                case KIND_BOOLEAN:
+                    longs[row] = rs.getBoolean(index) ? 1 : 0;
+                    break;
+                case KIND_DECIMAL:
+                    objects[row] = rs.getBigDecimal(index);
+                    break;
+                case KIND_DATE:
+                    Date date = rs.getDate(index);
+                    if (date != null) {
+                        longs[row] = date.toLocalDate().toEpochDay();
+                    }
+                    break;
+                case KIND_TIMESTAMP:
+                    Timestamp timestamp = rs.getTimestamp(index);
+                    if (timestamp != null) {
+                        longs[row] = Math.floorDiv(timestamp.getTime(), 1000L);
+                        nanos[row] = timestamp.getNanos();
+                    }
+                    break;
+                case KIND_BYTES:
+                    objects[row] = rs.getBytes(index);
+                    break;
+                default:
+                    objects[row] = rs.getString(index);
+                    break;
+            }
+            nulls[row] = rs.wasNull();
+        }
+
+        void bind(PreparedStatement stmt, int index, int row) throws SQLException {
+            if (nulls[row]) {
+                stmt.setNull(index, sqlType);
+                return;
+            }
+            switch (kind) {
+                case KIND_LONG:
+                    if (sqlType == Types.BIGINT) {
+                        stmt.setLong(index, longs[row]);
+                    } else {
+                        stmt.setInt(index, (int) longs[row]);
+                    }
+                    break;
+                case KIND_DOUBLE:
+                    stmt.setDouble(index, doubles[row]);
+                    break;
+                case KIND_BOOLEAN:
+                    stmt.setBoolean(index, longs[row] != 0);
+                    break;
+                case KIND_DECIMAL:
+                    stmt.setBigDecimal(index, (BigDecimal) objects[row]);
+                    break;
+                case KIND_DATE:
+                    stmt.setDate(index, Date.valueOf(LocalDate.ofEpochDay(longs[row])));
+                    break;
+                case KIND_TIMESTAMP:
+                    Timestamp timestamp = new Timestamp(longs[row] * 1000L);
+                    timestamp.setNanos(nanos[row]);
+                    stmt.setTimestamp(index, timestamp);
+                    break;
+                case KIND_BYTES:
+                    stmt.setBytes(index, (byte[]) objects[row]);
+                    break;
+                default:
+                    stmt.setString(index, (String) objects[row]);
+                    break;
+            }
+        }
+
+        void writeBlock(DataOutputStream data, int rows) throws IOException {
+            boolean hasNulls = false;
+            for (int row = 0; row < rows && !hasNulls; row++) {
+                hasNulls = nulls[row];
+            }
+            if (hasNulls) {
+                data.writeByte(NULL_BITMAP);
+                for (int row = 0; row < rows; row += 8) {
+                    int bits = 0;
+                    for (int bit = 0; bit < 8 && row + bit < rows; bit++) {
+                        if (nulls[row + bit]) {
+                            bits |= 1 << bit;
+                        }
+                    }
+                    data.writeByte(bits);
+                }
+            } else {
+                data.writeByte(NO_NULLS);
+            }
+
+            if (kind == KIND_STRING) {
+                writeStrings(data, rows);
+                return;
+            }
+            for (int row = 0; row < rows; row++) {
+                if (nulls[row]) {
+                    continue;
+                }
+                switch (kind) {
+                    case KIND_DOUBLE:
+                        data.writeDouble(doubles[row]);
+                        break;
+                    case KIND_DECIMAL:
+                        BigDecimal decimal = (BigDecimal) objects[row];
+                        writeVarlong(data, zigzag(decimal.scale()));
+                        writeBytes(data, decimal.unscaledValue().toByteArray());
+                        break;
+                    case KIND_TIMESTAMP:
+                        writeVarlong(data, zigzag(longs[row]));
+                        writeVarint(data, nanos[row]);
+                        break;
+                    case KIND_BYTES:
+                        writeBytes(data, (byte[]) objects[row]);
+                        break;
+                    default:
+                        writeVarlong(data, zigzag(longs[row]));
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Writes the block's strings through a dictionary when at most half of them are distinct.
+         */
+        private void writeStrings(DataOutputStream data, int rows) throws IOException {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            int nonNull = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!nulls[row]) {
+                    nonNull++;
+                    if (dictionary.size() * 2 <= rows && dictionary.putIfAbsent((String) objects[row], dictionary.size()) == null) {
+                        entries.add((String) objects[row]);
+                    }
+                }
+            }
+
+            if (nonNull > 0 && dictionary.size() * 2 <= nonNull) {
+                data.writeByte(DICTIONARY);
+                writeVarint(data, entries.size());
+                for (String entry : entries) {
+                    writeString(data, entry);
+                }
+                for (int row = 0; row < rows; row++) {
+                    if (!nulls[row]) {
+                        writeVarint(data, dictionary.get((String) objects[row]));
+                    }
+                }
+            } else {
+                data.writeByte(PLAIN);
+                for (int row = 0; row < rows; row++) {
+                    if (!nulls[row]) {
+                        writeString(data, (String) objects[row]);
+                    }
+                }
+            }
+        }
+
+        void readBlock(DataInputStream data, int rows) throws IOException {
+            if (rows > ROW_GROUP_SIZE) {
+                throw new IOException("Row group too large: " + rows);
+            }
+            Arrays.fill(nulls, 0, rows, false);
+            if (data.readByte() == NULL_BITMAP) {
+                for (int row = 0; row < rows; row += 8) {
+                    int bits = data.readUnsignedByte();
+                    for (int bit = 0; bit < 8 && row + bit < rows; bit++) {
+                        nulls[row + bit] = (bits & (1 << bit)) != 0;
+                    }
+                }
+            }
+
+            if (kind == KIND_STRING) {
+                readStrings(data, rows);
+                return;
+            }
+            for (int row = 0; row < rows; row++) {
+                if (nulls[row]) {
+                    continue;
+                }
+                switch (kind) {
+                    case KIND_DOUBLE:
+                        doubles[row] = data.readDouble();
+                        break;
+                    case KIND_DECIMAL:
+                        int scale = (int) unzigzag(readVarlong(data));
+                        objects[row] = new BigDecimal(new BigInteger(readBytes(data)), scale);
+                        break;
+                    case KIND_TIMESTAMP:
+                        longs[row] = unzigzag(readVarlong(data));
+                        nanos[row] = readVarint(data);
+                        break;
+                    case KIND_BYTES:
+                        objects[row] = readBytes(data);
+                        break;
+                    default:
+                        longs[row] = unzigzag(readVarlong(data));
+                        break;
+                }
+            }
+        }
+
+        private void readStrings(DataInputStream data, int rows) throws IOException {
+            if (data.readByte() == DICTIONARY) {
+                String[] entries = new String[readVarint(data)];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = readString(data);
+                }
+                for (int row = 0; row < rows; row++) {
+                    if (!nulls[row]) {
+                        objects[row] = entries[readVarint(data)];
+                    }
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    if (!nulls[row]) {
+                        objects[row] = readString(data);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream data, int value) throws IOException {
+        writeVarlong(data, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarlong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static int readVarint(DataInputStream data) throws IOException {
+        return (int) readVarlong(data);
+    }
+
+    private static long readVarlong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.read();
+            if (b < 0) {
+                throw new EOFException("Truncated snapshot");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        writeBytes(data, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        return new String(readBytes(data), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+        writeVarint(data, bytes.length);
+        data.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[readVarint(data)];
+        data.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,282 @@
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Built-in {@link BulkLoadStrategy} implementations and the registry that picks one for a connection.
+ *
+ * Strategies are tried in registration order, and the first whose supports method accepts the
+ * connection's DatabaseMetaData is used. Registered strategies come before the built-in H2 CSVREAD
+ * and PostgreSQL COPY strategies. The batched INSERT strategy is always last, so every
+ * database has a strategy.
+ *
+ * The native strategies let the database parse the cells, so they do not apply
+ * {@link CSVImportOptions}: there is no null token or date pattern, and text is converted
+ * to the column types by the server. They also read empty cells differently from the batched
+ * path. An unquoted empty cell loads as NULL in every column, and only a quoted {@code ""}
+ * loads as an empty string. The batched path keeps an empty cell of a character column as an
+ * empty string. CSVUtil writes empty strings unquoted, so a table exported with CSVUtil and
+ * loaded natively gets NULL where it had empty strings.
+ */
+public final class BulkLoadStrategies {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parses the CSV on the client and inserts it through batched INSERT statements, binding
+     * cells with the default {@link CSVImportOptions}.
+     */
+    public static final BulkLoadStrategy BATCHED_INSERT = new BatchedInsert();
+
+    /**
+     * Spools the CSV to a temporary file and loads it server-side with
+     * {@code INSERT INTO ... (header columns) SELECT * FROM CSVREAD(...)}. The server reads the
+     * file, so this is selected only for embedded in-memory or file databases, never for
+     * {@code jdbc:h2:tcp:} or {@code jdbc:h2:ssl:} URLs whose server may not see the client's
+     * temporary directory. Unquoted empty cells load as NULL.
+     */
+    public static final BulkLoadStrategy H2_CSVREAD = new H2CsvRead();
+
+    /**
+     * Streams the CSV to PostgreSQL through {@code COPY ... FROM STDIN}, using the driver's
+     * CopyManager. Selected only when the PostgreSQL driver is on the classpath. Unquoted empty
+     * cells load as NULL, following COPY's CSV format.
+     */
+    public static final BulkLoadStrategy POSTGRESQL_COPY = new PostgresCopy();
+
+    private static final List<BulkLoadStrategy> REGISTERED = new CopyOnWriteArrayList<>();
+
+    private BulkLoadStrategies() {
+    }
+
+    /**
+     * Registers a strategy ahead of the built-in ones.
+     *
+     * @param strategy The strategy to try before the built-in strategies
+     */
+    public static void register(BulkLoadStrategy strategy) {
+        REGISTERED.add(strategy);
+    }
+
+    /**
+     * Picks the first strategy that supports the connection's database.
+     *
+     * @param connection The JDBC Connection
+     * @return The strategy to load with; never null
+     * @throws SQLException if the metadata cannot be read
+     */
+    public static BulkLoadStrategy forConnection(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<BulkLoadStrategy> candidates = new ArrayList<>(REGISTERED);
+        candidates.add(H2_CSVREAD);
+        candidates.add(POSTGRESQL_COPY);
+        for (BulkLoadStrategy strategy : candidates) {
+            if (strategy.supports(metaData)) {
+                return strategy;
+            }
+        }
+        return BATCHED_INSERT;
+    }
+
+    private static final class BatchedInsert implements BulkLoadStrategy {
+        @Override
+        public boolean supports(DatabaseMetaData metaData) {
+            return true;
+        }
+
+        @Override
+        public CSVImportStats load(Connection connection, InputStream csv, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+            long start = System.nanoTime();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+            try (CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                return CSVUtil.insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, start);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "BATCHED_INSERT";
+        }
+    }
+
+    private static final class H2CsvRead implements BulkLoadStrategy {
+        @Override
+        public boolean supports(DatabaseMetaData metaData) throws SQLException {
+            if (!"H2".equalsIgnoreCase(metaData.getDatabaseProductName())) {
+                return false;
+            }
+            // A client/server URL means CSVREAD would run where the temporary file does not exist
+            String url = metaData.getURL();
+            if (url == null) {
+                return false;
+            }
+            String location = url.toLowerCase(Locale.ROOT);
+            return location.startsWith("jdbc:h2:") && !location.startsWith("jdbc:h2:tcp:") && !location.startsWith("jdbc:h2:ssl:");
+        }
+
+        @Override
+        public CSVImportStats load(Connection connection, InputStream csv, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+            long start = System.nanoTime();
+            Path file = Files.createTempFile("csv-bulk-load", ".csv");
+            try {
+                Files.copy(csv, file, StandardCopyOption.REPLACE_EXISTING);
+                List<String> columns;
+                try (InputStream in = Files.newInputStream(file)) {
+                    columns = readHeader(in);
+                }
+                if (columns.isEmpty()) {
+                    return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+                }
+                // CSVREAD returns the columns in file order, named after the header. H2 evaluates its
+                // arguments while preparing, so they must be literals rather than parameters.
+                String sql = "INSERT INTO " + targetTable + " (" + String.join(", ", columns) + ") SELECT * FROM CSVREAD("
+                        + sqlLiteral(file.toAbsolutePath().toString()) + ", NULL, " + sqlLiteral("charset=" + StandardCharsets.UTF_8.name()) + ")";
+                long rows = executeLoad(connection, sql, targetTable, commitInterval, () -> {
+                    try (Statement statement = connection.createStatement()) {
+                        return statement.executeUpdate(sql);
+                    }
+                });
+                return new CSVImportStats(rows, 1, commitInterval > 0 || connection.getAutoCommit() ? 1 : 0, System.nanoTime() - start);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        private static String sqlLiteral(String value) {
+            return "'" + value.replace("'", "''") + "'";
+        }
+
+        @Override
+        public String toString() {
+            return "H2_CSVREAD";
+        }
+    }
+
+    private static final class PostgresCopy implements BulkLoadStrategy {
+        @Override
+        public boolean supports(DatabaseMetaData metaData) throws SQLException {
+            return "PostgreSQL".equalsIgnoreCase(metaData.getDatabaseProductName()) && pgConnectionClass() != null;
+        }
+
+        @Override
+        public CSVImportStats load(Connection connection, InputStream csv, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+            long start = System.nanoTime();
+            List<String> columns = readHeader(csv);
+            if (columns.isEmpty()) {
+                return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+            }
+            String sql = "COPY " + targetTable + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv, ENCODING '" + StandardCharsets.UTF_8.name() + "')";
+            long rows = executeLoad(connection, sql, targetTable, commitInterval, () -> copyIn(connection, sql, csv));
+            return new CSVImportStats(rows, 1, commitInterval > 0 || connection.getAutoCommit() ? 1 : 0, System.nanoTime() - start);
+        }
+
+        @Override
+        public String toString() {
+            return "POSTGRESQL_COPY";
+        }
+    }
+
+    /**
+     * Reads the header line byte by byte, so the rest of the stream is passed to COPY untouched.
+     */
+    private static List<String> readHeader(InputStream csv) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = csv.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        String header = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+        List<String> columns = new ArrayList<>();
+        if (!header.isEmpty()) {
+            try (CSVParser parser = CSVParser.parse(header, CSVFormat.DEFAULT)) {
+                for (CSVRecord record : parser) {
+                    for (int i = 0; i < record.size(); i++) {
+                        columns.add(record.get(i));
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    @FunctionalInterface
+    private interface Load {
+        long execute() throws SQLException, IOException;
+    }
+
+    /**
+     * Runs one bulk statement, committing afterwards when commitInterval is positive, recording
+     * it in JdbcMetrics and invalidating cached results of the target table.
+     */
+    private static long executeLoad(Connection connection, String sql, String targetTable, int commitInterval, Load load) throws SQLException, IOException {
+        BatchInserts.Transaction transaction = BatchInserts.begin(connection, sql, targetTable, commitInterval);
+        long start = JdbcMetrics.start();
+        try {
+            long rows = load.execute();
+            JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordRows(sql, rows);
+            transaction.commit();
+            return rows;
+        } catch (SQLException | IOException | RuntimeException e) {
+            JdbcMetrics.recordError(sql);
+            transaction.rollback(e);
+            throw e;
+        } finally {
+            transaction.end();
+        }
+    }
+
+    /**
+     * Calls {@code PGConnection.getCopyAPI().copyIn(sql, in)} without a compile-time dependency on the driver.
+     */
+    private static long copyIn(Connection connection, String sql, InputStream in) throws SQLException, IOException {
+        Class<?> pgConnection = pgConnectionClass();
+        if (pgConnection == null) {
+            throw new SQLException("The PostgreSQL driver is not on the classpath");
+        }
+        try {
+            Object copyManager = pgConnection.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnection));
+            Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, InputStream.class);
+            return (Long) copyIn.invoke(copyManager, sql, in);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SQLException("COPY failed", cause);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("PostgreSQL CopyManager is not available", e);
+        }
+    }
+
+    private static Class<?> pgConnectionClass() {
+        try {
+            return Class.forName("org.postgresql.PGConnection");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * A way of loading CSV data into a table. Implementations may use a database's native bulk
+ * ingest; {@link BulkLoadStrategies#BATCHED_INSERT} works everywhere and is the fallback.
+ */
+public interface BulkLoadStrategy {
+
+    /**
+     * Returns whether this strategy can load into the database described by the metadata.
+     *
+     * @param metaData The metadata of the target connection
+     * @return true if {@link #load} can be used on that connection
+     * @throws SQLException if the metadata cannot be read
+     */
+    boolean supports(DatabaseMetaData metaData) throws SQLException;
+
+    /**
+     * Loads CSV data whose first record is the header naming the target columns.
+     * Strategies that hand the data to the database's own CSV reader do not apply
+     * {@link CSVImportOptions}; see {@link BulkLoadStrategies}.
+     *
+     * @param connection     The JDBC Connection
+     * @param csv            The CSV bytes, in the encoding CSVUtil writes; not closed
+     * @param targetTable    The table to load into
+     * @param batchSize      The number of records per round trip, for strategies that batch
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit
+     * @return Row count and throughput of the load
+     * @throws SQLException if the database rejects the load
+     * @throws IOException  if the CSV data cannot be read
+     */
+    CSVImportStats load(Connection connection, InputStream csv, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException;
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encoding of the CSV data stored in a csv_blob column.
+ *
+ * Compressed blobs start with a five byte header: the magic bytes {@code 00 'C' 'S' 'V'} followed
+ * by the codec id. CSV text never starts with a NUL byte, so {@link #decode(InputStream)} tells
+ * compressed blobs from legacy uncompressed ones and reads both. NONE writes no header, so
+ * blobs stored without compression are byte-for-byte what older versions wrote.
+ */
+public enum CSVBlobCodec {
+    NONE(0),
+    GZIP(1),
+    DEFLATE(2);
+
+    private static final byte[] MAGIC = { 0, 'C', 'S', 'V' };
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int id;
+
+    CSVBlobCodec(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Wraps a stream so the data written to it is stored with this codec.
+     * Closing the returned stream finishes the compressed data and closes out.
+     *
+     * @param out   The stream receiving the encoded blob
+     * @param level The compression level, 1 (fastest) to 9 (smallest) or
+     *              Deflater.DEFAULT_COMPRESSION; ignored by NONE
+     * @return The stream to write the CSV data to
+     * @throws IOException if the header cannot be written
+     */
+    public OutputStream encode(OutputStream out, int level) throws IOException {
+        if (this == NONE) {
+            return out;
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        out.write(MAGIC);
+        out.write(id);
+        if (this == GZIP) {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a stream of the CSV text stored in a blob, inflating it if the blob has a
+     * compression header and passing legacy uncompressed blobs through unchanged.
+     * Closing the returned stream closes in.
+     *
+     * @param in The raw blob stream
+     * @return The decoded CSV stream
+     * @throws IOException if the header cannot be read or names an unknown codec
+     */
+    public static InputStream decode(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, HEADER_LENGTH);
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = 0;
+        while (read < HEADER_LENGTH) {
+            int n = pushback.read(header, read, HEADER_LENGTH - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+
+        if (read < HEADER_LENGTH || !hasMagic(header)) {
+            pushback.unread(header, 0, read);
+            return pushback;
+        }
+        switch (forId(header[MAGIC.length])) {
+            case GZIP:
+                return new GZIPInputStream(pushback, BUFFER_SIZE);
+            case DEFLATE:
+                Inflater inflater = new Inflater();
+                return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            default:
+                return pushback;
+        }
+    }
+
+    private static boolean hasMagic(byte[] header) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CSVBlobCodec forId(int id) throws IOException {
+        for (CSVBlobCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown CSV blob codec: " + id);
+    }
+}
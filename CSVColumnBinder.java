@@ -0,0 +1,226 @@
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses one CSV cell and binds it to an INSERT parameter with the setter of the target column's type.
+ */
+@FunctionalInterface
+interface CSVColumnBinder {
+
+    void bind(PreparedStatement statement, int index, String value) throws SQLException;
+
+    /**
+     * Builds one binder per CSV column. The column types are read once with
+     * {@link DatabaseMetaData#getColumns}. If the types cannot be read, or typed binding is off,
+     * every column is bound with setString.
+     *
+     * @param connection  The JDBC Connection
+     * @param targetTable The table being imported into
+     * @param columns     The CSV header names, in record order
+     * @param options     The null token and date formats
+     * @return The binders, indexed like the CSV columns
+     */
+    static CSVColumnBinder[] forColumns(Connection connection, String targetTable, List<String> columns, CSVImportOptions options) {
+        CSVColumnBinder[] binders = new CSVColumnBinder[columns.size()];
+        int[] types = options.isTypedBinding() ? columnTypes(connection, targetTable, columns) : null;
+        for (int i = 0; i < binders.length; i++) {
+            CSVColumnBinder binder = types == null ? PreparedStatement::setString : forType(types[i], columns.get(i), options);
+            binders[i] = withNullToken(binder, options.getNullToken(), types == null ? Types.VARCHAR : types[i]);
+        }
+        return binders;
+    }
+
+    /**
+     * Looks the CSV columns up in the target table's metadata, trying the table name as given and
+     * in upper and lower case, since databases store unquoted names in one of those. A name
+     * qualified as {@code schema.table} is looked up in that schema; otherwise a table found in
+     * several schemas is resolved to the connection's current schema.
+     *
+     * @return The SQL types indexed like the columns, or null if any of them cannot be found
+     */
+    static int[] columnTypes(Connection connection, String targetTable, List<String> columns) {
+        // Read from metadata rather than by probing the table, since a failing query would abort a PostgreSQL transaction
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            int dot = targetTable.lastIndexOf('.');
+            String schema = dot < 0 ? null : unquote(targetTable.substring(0, dot));
+            String table = unquote(targetTable.substring(dot + 1));
+            Set<String> tried = new HashSet<>();
+            for (String name : new String[]{table, table.toUpperCase(Locale.ROOT), table.toLowerCase(Locale.ROOT)}) {
+                if (!tried.add(name)) {
+                    continue;
+                }
+                Map<String, Integer> found = columnTypes(metaData, schema == null ? null : caseLike(schema, name, table), name, connection);
+                if (found != null) {
+                    int[] types = new int[columns.size()];
+                    for (int i = 0; i < types.length; i++) {
+                        Integer type = found.get(unquote(columns.get(i)).toLowerCase(Locale.ROOT));
+                        if (type == null) {
+                            return null;
+                        }
+                        types[i] = type;
+                    }
+                    return types;
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            // Fall back to text binding and let the INSERT report real problems
+            return null;
+        }
+    }
+
+    /**
+     * Returns the types of the table's columns by lower-case name, or null if no schema or
+     * more than one candidate schema holds the table.
+     */
+    static Map<String, Integer> columnTypes(DatabaseMetaData metaData, String schema, String table, Connection connection) throws SQLException {
+        String escape = metaData.getSearchStringEscape();
+        Map<String, Map<String, Integer>> bySchema = new HashMap<>();
+        try (ResultSet resultSet = metaData.getColumns(null, escapePattern(schema, escape), escapePattern(table, escape), null)) {
+            while (resultSet.next()) {
+                bySchema.computeIfAbsent(String.valueOf(resultSet.getString("TABLE_SCHEM")), s -> new HashMap<>())
+                        .putIfAbsent(resultSet.getString("COLUMN_NAME").toLowerCase(Locale.ROOT), resultSet.getInt("DATA_TYPE"));
+            }
+        }
+        if (bySchema.size() <= 1) {
+            return bySchema.isEmpty() ? null : bySchema.values().iterator().next();
+        }
+        return bySchema.get(String.valueOf(connection.getSchema()));
+    }
+
+    // Matches the case of the schema name to the case variant tried for the table name
+    static String caseLike(String schema, String variant, String table) {
+        if (variant.equals(table)) {
+            return schema;
+        }
+        return variant.equals(table.toUpperCase(Locale.ROOT)) ? schema.toUpperCase(Locale.ROOT) : schema.toLowerCase(Locale.ROOT);
+    }
+
+    // Metadata lookups take patterns, in which _ and % of a real name must be escaped
+    static String escapePattern(String name, String escape) {
+        if (name == null || escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    static String unquote(String name) {
+        String trimmed = name.trim();
+        if (trimmed.length() > 1 && trimmed.charAt(0) == '"' && trimmed.charAt(trimmed.length() - 1) == '"') {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    static CSVColumnBinder withNullToken(CSVColumnBinder binder, String nullToken, int sqlType) {
+        if (nullToken == null) {
+            return binder;
+        }
+        return (statement, index, value) -> {
+            if (nullToken.equals(value)) {
+                statement.setNull(index, sqlType);
+            } else {
+                binder.bind(statement, index, value);
+            }
+        };
+    }
+
+    static CSVColumnBinder forType(int sqlType, String column, CSVImportOptions options) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return typed(sqlType, column, (statement, index, value) -> statement.setInt(index, Integer.parseInt(value.trim())));
+            case Types.BIGINT:
+                return typed(sqlType, column, (statement, index, value) -> statement.setLong(index, Long.parseLong(value.trim())));
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return typed(sqlType, column, (statement, index, value) -> statement.setDouble(index, Double.parseDouble(value.trim())));
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return typed(sqlType, column, (statement, index, value) -> statement.setBigDecimal(index, new BigDecimal(value.trim())));
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return typed(sqlType, column, (statement, index, value) -> statement.setBoolean(index, parseBoolean(value.trim())));
+            case Types.DATE:
+                DateTimeFormatter dateFormat = options.getDateFormat();
+                return typed(sqlType, column, (statement, index, value) -> statement.setDate(index, dateFormat == null
+                        ? Date.valueOf(value.trim())
+                        : Date.valueOf(LocalDate.parse(value.trim(), dateFormat))));
+            case Types.TIMESTAMP:
+                DateTimeFormatter timestampFormat = options.getTimestampFormat();
+                return typed(sqlType, column, (statement, index, value) -> statement.setTimestamp(index, parseTimestamp(value.trim(), timestampFormat)));
+            case Types.TIME:
+                return typed(sqlType, column, (statement, index, value) -> statement.setTime(index, Time.valueOf(value.trim())));
+            default:
+                return PreparedStatement::setString;
+        }
+    }
+
+    /**
+     * Binds empty cells as NULL of the column type and reports unparseable cells with their column.
+     */
+    static CSVColumnBinder typed(int sqlType, String column, CSVColumnBinder parse) {
+        return (statement, index, value) -> {
+            if (value == null || value.isEmpty()) {
+                statement.setNull(index, sqlType);
+                return;
+            }
+            try {
+                parse.bind(statement, index, value);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new SQLDataException("Cannot convert '" + value + "' for column " + column, e);
+            }
+        };
+    }
+
+    static boolean parseBoolean(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "t":
+            case "yes":
+            case "y":
+            case "1":
+                return true;
+            case "false":
+            case "f":
+            case "no":
+            case "n":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("Not a boolean: " + value);
+        }
+    }
+
+    static Timestamp parseTimestamp(String value, DateTimeFormatter format) {
+        if (format != null) {
+            return Timestamp.valueOf(LocalDateTime.parse(value, format));
+        }
+        if (value.indexOf('T') > 0) {
+            return Timestamp.valueOf(LocalDateTime.parse(value));
+        }
+        return Timestamp.valueOf(value);
+    }
+}
@@ -0,0 +1,315 @@
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports a CSV file from local disk by parsing chunks of it in parallel.
+ *
+ * The file is memory-mapped in windows of at most 1 GB and cut into chunks that end on record
+ * boundaries. Whether a newline ends a record or sits inside a quoted field depends on the number
+ * of quote characters before it, so a first parallel pass counts the quotes of every chunk and the
+ * running parity tells each chunk whether it starts inside quotes. A second parallel pass moves
+ * each cut to the next record end, parses the chunk with CSVParser and feeds it to the batch
+ * insert path of {@link CSVUtil} on its own connection.
+ *
+ * Chunks run on a ForkJoinPool, one connection per running chunk, and commit independently;
+ * a failed import leaves the chunks that already committed in place. The file must be UTF-8,
+ * optionally with a byte order mark, and its first record is the header naming target columns.
+ *
+ * The quote parity only tells record ends apart when the file is well-formed RFC 4180, where
+ * every quote opens or closes a quoted field or is doubled inside one. A stray quote in an
+ * unquoted field, such as {@code 5" pipe}, flips the parity for the rest of the file, so every
+ * later chunk boundary lands inside a record and the import fails or splits records wrongly.
+ * Such files must be imported with the sequential {@link CSVUtil} methods instead.
+ */
+public final class CSVFileIngest {
+
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+    private static final long MIN_CHUNK_BYTES = 16L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ConnectionFactory connections;
+    private final int parallelism;
+    private final int batchSize;
+    private final int commitInterval;
+    private final CSVImportOptions options;
+
+    public CSVFileIngest(ConnectionFactory connections, int parallelism, int batchSize, int commitInterval) {
+        this(connections, parallelism, batchSize, commitInterval, new CSVImportOptions());
+    }
+
+    /**
+     * @param connections    Where each chunk borrows its connection
+     * @param parallelism    The number of chunks parsed and inserted at once
+     * @param batchSize      The number of records sent per executeBatch call
+     * @param commitInterval The minimum number of rows between commits; must be positive, since
+     *                       each chunk commits its own connection before closing it
+     * @param options        The null token, date formats and whether to bind typed values
+     */
+    public CSVFileIngest(ConnectionFactory connections, int parallelism, int batchSize, int commitInterval, CSVImportOptions options) {
+        if (parallelism < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parallelism and batchSize must be positive");
+        }
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("A parallel file import needs a positive commitInterval: " + commitInterval);
+        }
+        this.connections = connections;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.options = options;
+    }
+
+    /**
+     * Imports every record of a CSV file into a table.
+     *
+     * @param file        The CSV file; its first record names the target columns.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @return Rows, batches and commits summed over all chunks, and the wall-clock time of the import.
+     * @throws SQLException If any chunk failed to insert.
+     * @throws IOException  If the file cannot be read.
+     */
+    public CSVImportStats load(Path file, String targetTable) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerStart = hasByteOrderMark(channel) ? 3 : 0;
+            long dataStart = findRecordStart(channel, headerStart, false);
+            List<String> columns = parseHeader(channel, headerStart, dataStart);
+            if (columns.isEmpty() || dataStart >= size) {
+                return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+            }
+
+            long[] cuts = cuts(dataStart, size);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                boolean[] startsInQuotes = startsInQuotes(pool, channel, cuts);
+                List<Callable<CSVImportStats>> chunks = new ArrayList<>(cuts.length - 1);
+                for (int i = 0; i < cuts.length - 1; i++) {
+                    int chunk = i;
+                    chunks.add(() -> {
+                        long from = chunk == 0 ? cuts[0] : findRecordStart(channel, cuts[chunk], startsInQuotes[chunk]);
+                        long to = chunk == cuts.length - 2 ? size : findRecordStart(channel, cuts[chunk + 1], startsInQuotes[chunk + 1]);
+                        return loadChunk(channel, from, to, columns, targetTable);
+                    });
+                }
+                return merge(invokeAll(pool, chunks), start);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Splits the data into roughly equal ranges, a few per thread so uneven chunks even out,
+     * each small enough to map in one window.
+     */
+    private long[] cuts(long dataStart, long size) {
+        long length = size - dataStart;
+        long chunkBytes = Math.min(MAX_WINDOW_BYTES, Math.max(MIN_CHUNK_BYTES, length / ((long) parallelism * CHUNKS_PER_THREAD)));
+        int count = (int) ((length + chunkBytes - 1) / chunkBytes);
+        long[] cuts = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            cuts[i] = dataStart + i * chunkBytes;
+        }
+        cuts[count] = size;
+        return cuts;
+    }
+
+    /**
+     * Counts the quotes of every range in parallel and turns the parities into a running state,
+     * so element i tells whether offset cuts[i] lies inside a quoted field.
+     */
+    private static boolean[] startsInQuotes(ForkJoinPool pool, FileChannel channel, long[] cuts) throws SQLException, IOException {
+        List<Callable<Boolean>> counts = new ArrayList<>(cuts.length - 1);
+        for (int i = 0; i < cuts.length - 1; i++) {
+            long from = cuts[i];
+            long to = cuts[i + 1];
+            counts.add(() -> oddQuotes(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)));
+        }
+        List<Boolean> odd = invokeAll(pool, counts);
+        boolean[] inQuotes = new boolean[cuts.length];
+        for (int i = 1; i < cuts.length; i++) {
+            inQuotes[i] = inQuotes[i - 1] ^ odd.get(i - 1);
+        }
+        return inQuotes;
+    }
+
+    private static boolean oddQuotes(MappedByteBuffer window) {
+        boolean odd = false;
+        for (int i = 0, limit = window.limit(); i < limit; i++) {
+            if (window.get(i) == '"') {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * Returns the offset just after the first newline at or after position that is outside quotes,
+     * or the end of the file when no record ends after position.
+     */
+    private static long findRecordStart(FileChannel channel, long position, boolean inQuotes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    private static boolean hasByteOrderMark(FileChannel channel) throws IOException {
+        ByteBuffer bom = ByteBuffer.allocate(3);
+        return channel.read(bom, 0) == 3 && bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB && bom.get(2) == (byte) 0xBF;
+    }
+
+    private static List<String> parseHeader(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        String header = StandardCharsets.UTF_8.decode(bytes).toString().trim();
+        List<String> columns = new ArrayList<>();
+        if (!header.isEmpty()) {
+            try (CSVParser parser = CSVParser.parse(header, CSVFormat.DEFAULT)) {
+                for (CSVRecord record : parser) {
+                    for (int i = 0; i < record.size(); i++) {
+                        columns.add(record.get(i));
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    private CSVImportStats loadChunk(FileChannel channel, long from, long to, List<String> columns, String targetTable) throws SQLException, IOException {
+        long start = System.nanoTime();
+        if (to <= from) {
+            // A record longer than the range swallowed it; the previous chunk has it
+            return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+        }
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("A chunk of " + (to - from) + " bytes does not fit in one mapped window");
+        }
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        CSVFormat format = CSVFormat.DEFAULT.withHeader(columns.toArray(new String[0]));
+        try (Connection connection = connections.getConnection();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteBufferInputStream(window), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+             CSVParser csvParser = new CSVParser(reader, format)) {
+            return CSVUtil.insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, options, start);
+        }
+    }
+
+    private static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws SQLException, IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        Throwable failure = null;
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addFailure(failure, e);
+            } catch (ExecutionException e) {
+                failure = addFailure(failure, e.getCause());
+            }
+        }
+        if (failure instanceof SQLException) {
+            throw (SQLException) failure;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure != null) {
+            throw new SQLException("Parallel CSV file ingest failed", failure);
+        }
+        return results;
+    }
+
+    private static Throwable addFailure(Throwable failure, Throwable cause) {
+        if (failure == null) {
+            return cause;
+        }
+        failure.addSuppressed(cause);
+        return failure;
+    }
+
+    private static CSVImportStats merge(List<CSVImportStats> chunks, long start) {
+        long rows = 0;
+        long batches = 0;
+        long commits = 0;
+        for (CSVImportStats chunk : chunks) {
+            rows += chunk.getRowsLoaded();
+            batches += chunk.getBatches();
+            commits += chunk.getCommits();
+        }
+        return new CSVImportStats(rows, batches, commits, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads a mapped window without copying it to the heap first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
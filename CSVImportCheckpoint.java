@@ -0,0 +1,165 @@
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Locale;
+
+/**
+ * Durable progress of a resumable CSV import, kept in the {@value #TABLE} control table.
+ *
+ * The checkpoint row of a source is written in the same transaction as the rows it counts,
+ * just before each commit, so after a failure it names exactly the records that are in the
+ * target table. A restarted import skips that many records and continues from there.
+ */
+public final class CSVImportCheckpoint {
+
+    public static final String TABLE = "csv_import_checkpoint";
+
+    private static final String CREATE_SQL = "CREATE TABLE " + TABLE + " (" +
+            "source_id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+            "record_offset BIGINT NOT NULL, " +
+            "rows_committed BIGINT NOT NULL, " +
+            "completed SMALLINT NOT NULL, " +
+            "updated_at TIMESTAMP NOT NULL)";
+    private static final String SELECT_SQL = "SELECT record_offset, rows_committed, completed FROM " + TABLE + " WHERE source_id = ?";
+    private static final String UPDATE_SQL = "UPDATE " + TABLE + " SET record_offset = ?, rows_committed = ?, completed = ?, updated_at = ? WHERE source_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO " + TABLE + " (record_offset, rows_committed, completed, updated_at, source_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM " + TABLE + " WHERE source_id = ?";
+
+    private final String sourceId;
+    private long recordOffset;      // Data records consumed and committed, counted from the first after the header
+    private long rowsCommitted;     // Rows inserted into the target table across all runs
+    private boolean completed;      // Whether the last run reached the end of the source
+
+    private CSVImportCheckpoint(String sourceId, long recordOffset, long rowsCommitted, boolean completed) {
+        this.sourceId = sourceId;
+        this.recordOffset = recordOffset;
+        this.rowsCommitted = rowsCommitted;
+        this.completed = completed;
+    }
+
+    /**
+     * Reads the checkpoint of a source, creating the control table on first use.
+     * A source without a checkpoint starts at record 0.
+     *
+     * @param connection The JDBC Connection
+     * @param sourceId   Identifies the CSV source and its target, e.g. {@link #blobSourceId}
+     * @return The stored progress of the source
+     * @throws SQLException if a database access error occurs
+     */
+    public static CSVImportCheckpoint load(Connection connection, String sourceId) throws SQLException {
+        createTableIfMissing(connection);
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setString(1, sourceId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new CSVImportCheckpoint(sourceId, 0, 0, false);
+                }
+                return new CSVImportCheckpoint(sourceId, resultSet.getLong(1), resultSet.getLong(2), resultSet.getInt(3) != 0);
+            }
+        }
+    }
+
+    /**
+     * Forgets the progress of a source so the next resumable import starts from the beginning,
+     * e.g. after the source data was replaced.
+     *
+     * @param connection The JDBC Connection
+     * @param sourceId   The source to reset
+     * @throws SQLException if a database access error occurs
+     */
+    public static void clear(Connection connection, String sourceId) throws SQLException {
+        createTableIfMissing(connection);
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            statement.setString(1, sourceId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * The source id used for importing the CSV BLOB of one row into a target table.
+     */
+    public static String blobSourceId(String tableName, int id, String targetTable) {
+        return tableName + "/" + id + "->" + targetTable;
+    }
+
+    /**
+     * Records progress in the caller's transaction; the caller commits it together with the rows.
+     *
+     * @param connection   The connection of the import transaction
+     * @param recordOffset The number of data records consumed so far
+     * @param rowsAdded    The number of rows inserted since the last save
+     * @param completed    Whether the source has been read to the end
+     * @throws SQLException if a database access error occurs
+     */
+    void save(Connection connection, long recordOffset, long rowsAdded, boolean completed) throws SQLException {
+        long rowsCommitted = this.rowsCommitted + rowsAdded;
+        int updated;
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+            bind(statement, recordOffset, rowsCommitted, completed);
+            updated = statement.executeUpdate();
+        }
+        if (updated == 0) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                bind(statement, recordOffset, rowsCommitted, completed);
+                statement.executeUpdate();
+            }
+        }
+        // A rollback fails the import, so this object is never reused after one
+        this.recordOffset = recordOffset;
+        this.rowsCommitted = rowsCommitted;
+        this.completed = completed;
+    }
+
+    private void bind(PreparedStatement statement, long recordOffset, long rowsCommitted, boolean completed) throws SQLException {
+        statement.setLong(1, recordOffset);
+        statement.setLong(2, rowsCommitted);
+        statement.setInt(3, completed ? 1 : 0);
+        statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+        statement.setString(5, sourceId);
+    }
+
+    private static void createTableIfMissing(Connection connection) throws SQLException {
+        // Looked up in metadata rather than by a failing query, which would abort a PostgreSQL transaction
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[]{TABLE, TABLE.toUpperCase(Locale.ROOT), TABLE.toLowerCase(Locale.ROOT)}) {
+            try (ResultSet tables = metaData.getTables(null, null, name, new String[]{"TABLE"})) {
+                if (tables.next()) {
+                    return;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_SQL);
+        }
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+
+    public long getRowsCommitted() {
+        return rowsCommitted;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "CSVImportCheckpoint{" +
+               "sourceId='" + sourceId + '\'' +
+               ", recordOffset=" + recordOffset +
+               ", rowsCommitted=" + rowsCommitted +
+               ", completed=" + completed +
+               '}';
+    }
+}
@@ -0,0 +1,80 @@
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Settings for how CSV imports turn cells into bound parameter values.
+ *
+ * By default every cell is bound with setString and the server converts it, as older versions
+ * did; only cells equal to the null token become NULL. With typed binding the importer reads
+ * the target columns' SQL types once and binds each cell with the matching setter (setInt,
+ * setLong, setBigDecimal, setDate, ...) instead, so the server does no implicit text
+ * conversion. Typed binding is stricter: a cell such as "1.0" or "1,234" in an INTEGER column
+ * fails with an SQLDataException, and empty cells of non-character columns are bound as NULL
+ * rather than ''. Dates and timestamps are parsed with the configured patterns, or as ISO /
+ * JDBC escape format when no pattern is set.
+ */
+public class CSVImportOptions {
+    private boolean typedBinding;
+    private String nullToken;
+    private DateTimeFormatter dateFormat;
+    private DateTimeFormatter timestampFormat;
+
+    public boolean isTypedBinding() {
+        return typedBinding;
+    }
+
+    /**
+     * Binds each cell with the setter of its target column's type when true; off by default,
+     * which binds every cell with setString.
+     */
+    public CSVImportOptions setTypedBinding(boolean typedBinding) {
+        this.typedBinding = typedBinding;
+        return this;
+    }
+
+    public String getNullToken() {
+        return nullToken;
+    }
+
+    /**
+     * Cells equal to this text, such as "NULL" or "\N", are bound as NULL in every column.
+     */
+    public CSVImportOptions setNullToken(String nullToken) {
+        this.nullToken = nullToken;
+        return this;
+    }
+
+    public DateTimeFormatter getDateFormat() {
+        return dateFormat;
+    }
+
+    /**
+     * Sets the pattern of DATE cells, e.g. "dd/MM/yyyy"; null parses yyyy-MM-dd.
+     */
+    public CSVImportOptions setDatePattern(String pattern) {
+        this.dateFormat = pattern == null ? null : DateTimeFormatter.ofPattern(pattern);
+        return this;
+    }
+
+    public DateTimeFormatter getTimestampFormat() {
+        return timestampFormat;
+    }
+
+    /**
+     * Sets the pattern of TIMESTAMP cells, e.g. "dd/MM/yyyy HH:mm:ss"; null parses
+     * yyyy-MM-dd HH:mm:ss[.fffffffff] and ISO yyyy-MM-ddTHH:mm:ss.
+     */
+    public CSVImportOptions setTimestampPattern(String pattern) {
+        this.timestampFormat = pattern == null ? null : DateTimeFormatter.ofPattern(pattern);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "CSVImportOptions{" +
+               "typedBinding=" + typedBinding +
+               ", nullToken='" + nullToken + '\'' +
+               ", dateFormat=" + dateFormat +
+               ", timestampFormat=" + timestampFormat +
+               '}';
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.concurrent.TimeUnit;
+
+public class CSVImportStats {
+    private final long rowsLoaded;      // Number of CSV records inserted
+    private final long batches;         // Number of executeBatch round trips
+    private final long commits;         // Number of intermediate and final commits issued
+    private final long elapsedNanos;    // Wall-clock time of the import
+
+    public CSVImportStats(long rowsLoaded, long batches, long commits, long elapsedNanos) {
+        this.rowsLoaded = rowsLoaded;
+        this.batches = batches;
+        this.commits = commits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsLoaded() {
+        return rowsLoaded;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsLoaded * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CSVImportStats{" +
+               "rowsLoaded=" + rowsLoaded +
+               ", batches=" + batches +
+               ", commits=" + commits +
+               ", elapsedMillis=" + getElapsedMillis() +
+               ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+               '}';
+    }
+}
@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Writes ResultSet rows as RFC 4180 CSV (the layout of {@code CSVFormat.DEFAULT}) encoded as UTF-8.
+ * <p>
+ * Cells are encoded straight into one reusable byte buffer, so a row costs no allocation beyond
+ * what the driver needs to hand out its values. Integer columns are read with getLong and written
+ * digit by digit, falling back to getString for values out of long range, and DATE and TIMESTAMP
+ * columns are read as java.time values and formatted without an intermediate String where the
+ * driver supports it. Everything else goes through getString. A cell is quoted only when it contains a comma, quote or line break, or when an
+ * empty cell would otherwise produce a blank line.
+ * <p>
+ * Not thread-safe. The writer flushes to, but never closes, the underlying stream.
+ */
+final class CSVRowWriter {
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte[] RECORD_SEPARATOR = {'\r', '\n'};
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    // Longest UTF-8 sequence, or a doubled quote
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private enum Kind { TEXT, INTEGER, DATE, TIMESTAMP }
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    CSVRowWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Writes the column names of a result as the header record.
+     *
+     * @param metaData The metadata of the ResultSet being exported
+     * @throws SQLException, IOException
+     */
+    void writeHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        int columnCount = metaData.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                put(COMMA);
+            }
+            writeText(metaData.getColumnName(i), columnCount == 1);
+        }
+        put(RECORD_SEPARATOR);
+    }
+
+    /**
+     * Writes the remaining rows of a ResultSet, one record per row.
+     *
+     * @param resultSet The ResultSet, positioned before the first row to write
+     * @return The number of rows written
+     * @throws SQLException, IOException
+     */
+    long writeRows(ResultSet resultSet) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        Kind[] kinds = new Kind[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            kinds[i] = kindOf(metaData.getColumnType(i + 1));
+        }
+
+        long rowCount = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    put(COMMA);
+                }
+                kinds[i] = writeCell(resultSet, i + 1, kinds[i], columnCount == 1);
+            }
+            put(RECORD_SEPARATOR);
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Writes any buffered bytes and flushes the underlying stream.
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private static Kind kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return Kind.INTEGER;
+            case Types.DATE:
+                return Kind.DATE;
+            case Types.TIMESTAMP:
+                return Kind.TIMESTAMP;
+            default:
+                return Kind.TEXT;
+        }
+    }
+
+    /**
+     * Writes one cell and returns the kind to use for this column from now on. A driver that
+     * cannot hand out java.time values, or an integer that does not fit in a long, demotes the
+     * column to text on first failure.
+     */
+    private Kind writeCell(ResultSet resultSet, int column, Kind kind, boolean onlyColumn) throws SQLException, IOException {
+        switch (kind) {
+            case INTEGER:
+                long value;
+                try {
+                    value = resultSet.getLong(column);
+                } catch (SQLException | ArithmeticException | NumberFormatException e) {
+                    // Out of long range, e.g. BIGINT UNSIGNED above Long.MAX_VALUE
+                    writeText(resultSet.getString(column), onlyColumn);
+                    return Kind.TEXT;
+                }
+                if (!resultSet.wasNull()) {
+                    writeLong(value);
+                }
+                return kind;
+            case DATE:
+                LocalDate date;
+                try {
+                    date = resultSet.getObject(column, LocalDate.class);
+                } catch (SQLException e) {
+                    writeText(resultSet.getString(column), onlyColumn);
+                    return Kind.TEXT;
+                }
+                if (date != null) {
+                    writeDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+                }
+                return kind;
+            case TIMESTAMP:
+                LocalDateTime timestamp;
+                try {
+                    timestamp = resultSet.getObject(column, LocalDateTime.class);
+                } catch (SQLException e) {
+                    writeText(resultSet.getString(column), onlyColumn);
+                    return Kind.TEXT;
+                }
+                if (timestamp != null) {
+                    writeTimestamp(timestamp);
+                }
+                return kind;
+            default:
+                writeText(resultSet.getString(column), onlyColumn);
+                return kind;
+        }
+    }
+
+    private void writeText(String value, boolean onlyColumn) throws IOException {
+        int length = value == null ? 0 : value.length();
+        if (length == 0) {
+            if (onlyColumn) {
+                // A bare empty record would be read back as a blank line and skipped
+                put(QUOTE);
+                put(QUOTE);
+            }
+            return;
+        }
+        boolean quote = needsQuotes(value, length);
+        if (quote) {
+            put(QUOTE);
+        }
+        for (int i = 0; i < length; i++) {
+            if (position + MAX_BYTES_PER_CHAR > buffer.length) {
+                drain();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    buffer[position++] = QUOTE;
+                }
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced like String.getBytes does
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (quote) {
+            put(QUOTE);
+        }
+    }
+
+    private static boolean needsQuotes(String value, int length) {
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            put(LONG_MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        put(digits, start, digits.length - start);
+    }
+
+    private void writeDate(int year, int month, int day) throws IOException {
+        if (year < 0 || year > 9999) {
+            // Outside the four-digit range ISO-8601 needs a sign and more digits
+            writeText(LocalDate.of(year, month, day).toString(), false);
+            return;
+        }
+        writePadded(year, 4);
+        put((byte) '-');
+        writePadded(month, 2);
+        put((byte) '-');
+        writePadded(day, 2);
+    }
+
+    /**
+     * Writes {@code yyyy-mm-dd hh:mm:ss[.fffffffff]}, the layout Timestamp.valueOf reads back,
+     * with trailing zeros of the fraction dropped.
+     */
+    private void writeTimestamp(LocalDateTime timestamp) throws IOException {
+        writeDate(timestamp.getYear(), timestamp.getMonthValue(), timestamp.getDayOfMonth());
+        put((byte) ' ');
+        writePadded(timestamp.getHour(), 2);
+        put((byte) ':');
+        writePadded(timestamp.getMinute(), 2);
+        put((byte) ':');
+        writePadded(timestamp.getSecond(), 2);
+        int nanos = timestamp.getNano();
+        if (nanos != 0) {
+            int width = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                width--;
+            }
+            put((byte) '.');
+            writePadded(nanos, width);
+        }
+    }
+
+    private void writePadded(int value, int width) throws IOException {
+        if (position + width > buffer.length) {
+            drain();
+        }
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void put(byte b) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = b;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        put(bytes, 0, bytes.length);
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        if (position + length > buffer.length) {
+            drain();
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
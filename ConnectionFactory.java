@@ -0,0 +1,23 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ConnectionFactory {
+    /**
+     * Opens or borrows a connection; the caller is responsible for closing it.
+     *
+     * @return A Connection
+     * @throws SQLException if a database access error occurs
+     */
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Returns a factory borrowing pooled connections to the given host.
+     *
+     * @param host The hostname the credentials are registered under
+     * @return A ConnectionFactory backed by JDBCUtil.getConnection(host)
+     */
+    static ConnectionFactory forHost(String host) {
+        return () -> JDBCUtil.getConnection(host);
+    }
+}
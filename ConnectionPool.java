@@ -0,0 +1,672 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A per-host JDBC connection pool whose credentials and JDBC URL come from
+ * {@link DatabaseCredentialStore}.
+ *
+ * Borrowing takes a permit from a semaphore sized to the maximum pool size and pops the most
+ * recently returned idle connection from a lock-free deque; returning pushes it back. Closing
+ * the Connection handed out returns it to the pool, after rolling back open work and restoring
+ * the auto-commit, read-only, isolation and catalog settings the connection was opened with.
+ * Idle connections are validated with {@link Connection#isValid(int)} when they have not been
+ * used for the validation interval, and a background housekeeper trims idle connections, keeps
+ * the pool at its minimum size and reports connections held longer than the leak detection
+ * threshold.
+ *
+ * The physical connection stays hidden: unwrap, and getConnection() of the statements and
+ * metadata the Connection hands out, return the pooled Connection. Unwrapping to a driver
+ * interface such as PGConnection still returns the driver's object, which must not be closed.
+ */
+public final class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger("ConnectionPool");
+
+    /**
+     * System property naming the host used by {@link JDBCUtil#getConnection()}.
+     */
+    public static final String DEFAULT_HOST_PROPERTY = "jdbcutil.host";
+
+    private static final Map<String, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "connection-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile Settings defaultSettings = new Settings();
+    private static volatile String defaultHost;
+
+    private final String host;
+    private final Settings settings;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledFuture<?> housekeeping;
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    private ConnectionPool(String host, Settings settings) {
+        this.host = host;
+        this.settings = settings.copy();
+        this.permits = new Semaphore(this.settings.maxSize);
+        long interval = this.settings.housekeepingIntervalMillis;
+        this.housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the settings used by pools created from now on.
+     */
+    public static void setDefaultSettings(Settings settings) {
+        defaultSettings = settings.copy();
+    }
+
+    /**
+     * Sets the host used by {@link JDBCUtil#getConnection()}; overrides the system property.
+     */
+    public static void setDefaultHost(String host) {
+        defaultHost = host;
+    }
+
+    public static String getDefaultHost() {
+        String host = defaultHost;
+        return host != null ? host : System.getProperty(DEFAULT_HOST_PROPERTY);
+    }
+
+    /**
+     * Returns the pool of a host, creating it with the default settings on first use.
+     */
+    public static ConnectionPool forHost(String host) {
+        ConnectionPool pool = POOLS.get(host);
+        if (pool == null) {
+            pool = POOLS.computeIfAbsent(host, h -> new ConnectionPool(h, defaultSettings));
+            pool.fillToMinimum();
+        }
+        return pool;
+    }
+
+    /**
+     * Closes every pool and its idle connections.
+     */
+    public static void shutdownAll() {
+        for (String host : POOLS.keySet()) {
+            ConnectionPool pool = POOLS.remove(host);
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the physical connection behind a pooled Connection, or the argument itself
+     * if it did not come from a pool.
+     */
+    static Connection physicalConnection(Connection conn) {
+        if (conn != null && Proxy.isProxyClass(conn.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(conn);
+            if (handler instanceof Lease) {
+                return ((Lease) handler).pooled.connection;
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured maximum wait time.
+     * Closing the returned Connection gives it back to the pool.
+     *
+     * @return A pooled connection
+     * @throws SQLException if no connection could be obtained in time or opening one failed
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool for " + host + " is closed");
+        }
+        long start = System.nanoTime();
+        acquirePermit(start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null && !isUsable(pooled)) {
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = open();
+            }
+
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowSite = settings.leakDetectionThresholdMillis > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            recordWait(System.nanoTime() - start);
+
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(pooled));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getCreatedCount() {
+        return created.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.sum();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.sum();
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = borrows.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Closes the idle connections and stops housekeeping; borrowed connections are closed
+     * when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeping.cancel(false);
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+               "host='" + host + '\'' +
+               ", active=" + getActiveCount() +
+               ", idle=" + getIdleCount() +
+               ", waiting=" + getWaitingCount() +
+               ", borrows=" + getBorrowCount() +
+               ", avgWaitMillis=" + String.format("%.3f", getAverageWaitMillis()) +
+               ", maxWaitMillis=" + String.format("%.3f", getMaxWaitMillis()) +
+               ", timeouts=" + getTimeoutCount() +
+               ", leaks=" + getLeaksDetected() +
+               '}';
+    }
+
+    private void acquirePermit(long start) throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        try {
+            if (!permits.tryAcquire(settings.maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                recordWait(System.nanoTime() - start);
+                throw new SQLTimeoutException("Timed out after " + settings.maxWaitMillis
+                        + " ms waiting for a connection to " + host + " (" + this + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to " + host, e);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrows.increment();
+        waitNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // Retry until the maximum is published
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (isExpired(pooled, now)) {
+            return false;
+        }
+        if (now - pooled.lastUsedAt < TimeUnit.MILLISECONDS.toNanos(settings.validationIntervalMillis)) {
+            return true;
+        }
+        try {
+            if (pooled.connection.isValid(settings.validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Validation of a connection to " + host + " failed", e);
+        }
+        validationFailures.increment();
+        return false;
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return settings.maxLifetimeMillis > 0
+                && now - pooled.createdAt > TimeUnit.MILLISECONDS.toNanos(settings.maxLifetimeMillis);
+    }
+
+    private PooledConnection open() throws SQLException {
+        DatabaseCredentialStore.DatabaseCredentials credentials = DatabaseCredentialStore.getInstance().getCredentials(host);
+        if (credentials == null) {
+            throw new SQLException("No credentials registered for host " + host);
+        }
+        if (credentials.getJdbcUrl() == null) {
+            throw new SQLException("No JDBC URL registered for host " + host);
+        }
+
+        Connection connection = DriverManager.getConnection(credentials.getJdbcUrl(), credentials.getUsername(), credentials.getPassword());
+        PooledConnection pooled;
+        try {
+            pooled = new PooledConnection(connection);
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        total.incrementAndGet();
+        created.increment();
+        return pooled;
+    }
+
+    private void release(PooledConnection pooled, boolean broken) {
+        borrowed.remove(pooled);
+        try {
+            if (broken || closed || isExpired(pooled, System.nanoTime()) || !reset(pooled)) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsedAt = System.nanoTime();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Rolls back unfinished work and restores the settings the connection was opened with,
+    // so the next borrower starts clean
+    private boolean reset(PooledConnection pooled) {
+        try {
+            Connection connection = pooled.connection;
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (connection.isReadOnly() != pooled.initialReadOnly) {
+                connection.setReadOnly(pooled.initialReadOnly);
+            }
+            if (connection.getTransactionIsolation() != pooled.initialIsolation) {
+                connection.setTransactionIsolation(pooled.initialIsolation);
+            }
+            if (pooled.initialCatalog != null && !pooled.initialCatalog.equals(connection.getCatalog())) {
+                connection.setCatalog(pooled.initialCatalog);
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Discarding a connection to " + host + " that could not be reset", e);
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        destroyed.increment();
+        StatementCache.invalidate(pooled.connection);
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing a connection to " + host, e);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < settings.minSize && permits.tryAcquire()) {
+            try {
+                if (total.get() < settings.minSize) {
+                    PooledConnection pooled = open();
+                    pooled.lastUsedAt = System.nanoTime();
+                    idle.offerLast(pooled);
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Could not open a connection to " + host, e);
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            long idleTimeout = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis);
+            for (PooledConnection pooled : idle) {
+                boolean surplus = settings.idleTimeoutMillis > 0 && total.get() > settings.minSize && now - pooled.lastUsedAt > idleTimeout;
+                if ((surplus || isExpired(pooled, now)) && idle.remove(pooled)) {
+                    destroy(pooled);
+                }
+            }
+
+            if (settings.leakDetectionThresholdMillis > 0) {
+                long threshold = TimeUnit.MILLISECONDS.toNanos(settings.leakDetectionThresholdMillis);
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                        pooled.leakReported = true;
+                        leaksDetected.increment();
+                        LOGGER.log(Level.WARNING, "Connection to " + host + " held for more than "
+                                + settings.leakDetectionThresholdMillis + " ms; possible leak", pooled.borrowSite);
+                    }
+                }
+            }
+
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Housekeeping of the pool for " + host + " failed", e);
+        }
+    }
+
+    // SQLState class 08 means the connection itself is gone
+    private static boolean isFatal(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLNonTransientConnectionException || (state != null && state.startsWith("08"));
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final boolean initialReadOnly;      // Settings restored when the connection is returned
+        private final int initialIsolation;
+        private final String initialCatalog;
+        private final long createdAt = System.nanoTime();
+        private volatile long lastUsedAt = createdAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.initialReadOnly = connection.isReadOnly();
+            this.initialIsolation = connection.getTransactionIsolation();
+            this.initialCatalog = connection.getCatalog();
+        }
+    }
+
+    /**
+     * The Connection handed to one borrower; close() returns the physical connection.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+        private volatile boolean broken;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        // Returning rolls back whatever is still open
+                        QueryResultCache.transactionEnded(pooled.connection);
+                        release(pooled, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    if (returned) {
+                        return true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + host + "]" + (returned ? " (returned)" : "");
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool for " + host);
+            }
+            Object result = delegate(pooled.connection, method, args);
+            if (endsTransaction(method, args)) {
+                QueryResultCache.transactionEnded(pooled.connection);
+            }
+            if (result instanceof Statement || result instanceof DatabaseMetaData) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() }, new LeaseScoped(this, (Connection) proxy, result));
+            }
+            return result;
+        }
+
+        // Calls the physical object, marking the lease broken if the connection itself failed
+        private Object delegate(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * A Statement or DatabaseMetaData obtained from a lease. getConnection() returns the pooled
+     * Connection rather than the physical one. ResultSets are not wrapped, so
+     * {@code ResultSet.getStatement().getConnection()} still reaches the physical connection.
+     */
+    private static final class LeaseScoped implements InvocationHandler {
+        private final Lease lease;
+        private final Connection connection;
+        private final Object target;
+
+        private LeaseScoped(Lease lease, Connection connection, Object target) {
+            this.lease = lease;
+            this.connection = connection;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return lease.delegate(target, method, args);
+        }
+    }
+
+    // commit(), rollback() and setAutoCommit(true) end the current transaction; rollback(Savepoint) does not
+    private static boolean endsTransaction(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "commit":
+                return true;
+            case "rollback":
+                return args == null || args.length == 0;
+            case "setAutoCommit":
+                return Boolean.TRUE.equals(args[0]);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Pool sizing, validation and leak detection settings.
+     */
+    public static final class Settings {
+        private int minSize = 1;
+        private int maxSize = 10;
+        private long maxWaitMillis = 30_000;
+        private long validationIntervalMillis = 30_000;
+        private int validationTimeoutSeconds = 5;
+        private long idleTimeoutMillis = 600_000;
+        private long maxLifetimeMillis = 1_800_000;
+        private long leakDetectionThresholdMillis = 0;
+        private long housekeepingIntervalMillis = 30_000;
+
+        public Settings setMinSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Settings setMaxSize(int maxSize) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Settings setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * Idle connections unused for longer than this are validated before being handed out.
+         */
+        public Settings setValidationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+            return this;
+        }
+
+        public Settings setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * Idle connections above the minimum size are closed after this long; 0 keeps them.
+         */
+        public Settings setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Connections older than this are retired when idle; 0 keeps them forever.
+         */
+        public Settings setMaxLifetimeMillis(long maxLifetimeMillis) {
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            return this;
+        }
+
+        /**
+         * Connections borrowed for longer than this are logged with their borrow site; 0 disables it.
+         */
+        public Settings setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            return this;
+        }
+
+        public Settings setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+            this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+            return this;
+        }
+
+        private Settings copy() {
+            Settings copy = new Settings();
+            copy.minSize = Math.min(minSize, maxSize);
+            copy.maxSize = maxSize;
+            copy.maxWaitMillis = maxWaitMillis;
+            copy.validationIntervalMillis = validationIntervalMillis;
+            copy.validationTimeoutSeconds = validationTimeoutSeconds;
+            copy.idleTimeoutMillis = idleTimeoutMillis;
+            copy.maxLifetimeMillis = maxLifetimeMillis;
+            copy.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            copy.housekeepingIntervalMillis = housekeepingIntervalMillis;
+            return copy;
+        }
+    }
+}
@@ -1,43 +1,116 @@
 import org.apache.commons.csv.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.sql.*;
 import java.util.*;
+import java.util.zip.Deflater;
 
 public class CSVUtil {
 
+    /**
+     * Default number of rows the driver is asked to fetch per round trip when exporting.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Default number of records sent to the database per executeBatch call when importing.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Converts a JDBC ResultSet to CSV format and returns it as a byte array.
+     * Prefer {@link #writeResultSetToCSV(ResultSet, OutputStream)} for large results.
      *
      * @param resultSet The ResultSet from the database query.
      * @return A byte array containing the CSV data.
      * @throws SQLException, IOException
      */
     public static byte[] resultSetToCSVBytes(ResultSet resultSet) throws SQLException, IOException {
-        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-             OutputStreamWriter writer = new OutputStreamWriter(byteStream);
-             CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream()) {
+            writeResultSetToCSV(resultSet, byteStream);
+            return byteStream.toByteArray();
+        }
+    }
 
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
+    /**
+     * Writes a JDBC ResultSet as UTF-8 CSV straight to an OutputStream, one row at a time,
+     * so memory use does not grow with the number of rows.
+     * The stream is flushed but not closed; the caller owns it.
+     *
+     * @param resultSet The ResultSet from the database query.
+     * @param out The stream receiving the CSV data.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long writeResultSetToCSV(ResultSet resultSet, OutputStream out) throws SQLException, IOException {
+        return writeResultSetToCSV(resultSet, out, true);
+    }
 
-            // Writing header row
-            List<String> headers = new ArrayList<>();
-            for (int i = 1; i <= columnCount; i++) {
-                headers.add(metaData.getColumnName(i));
-            }
-            csvPrinter.printRecord(headers);
+    /**
+     * Writes a JDBC ResultSet as CSV to an OutputStream, optionally without the header record,
+     * for output that continues an earlier export.
+     *
+     * @param resultSet The ResultSet from the database query.
+     * @param out The stream receiving the CSV data.
+     * @param header Whether to write the header record.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long writeResultSetToCSV(ResultSet resultSet, OutputStream out, boolean header) throws SQLException, IOException {
+        CSVRowWriter writer = new CSVRowWriter(out, WRITE_BUFFER_SIZE);
+        if (header) {
+            writer.writeHeader(resultSet.getMetaData());
+        }
+        long rowCount = writer.writeRows(resultSet);
+        writer.flush();
+        return rowCount;
+    }
 
-            // Writing data rows
-            while (resultSet.next()) {
-                List<String> row = new ArrayList<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    row.add(resultSet.getString(i));
-                }
-                csvPrinter.printRecord(row);
+    /**
+     * Runs a query and streams its result as CSV to an OutputStream.
+     *
+     * @param connection The JDBC Connection.
+     * @param query The SELECT query to export.
+     * @param fetchSize The number of rows the driver should fetch per round trip.
+     * @param out The stream receiving the CSV data; flushed but not closed.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long exportQueryToCSV(Connection connection, String query, int fetchSize, OutputStream out) throws SQLException, IOException {
+        long start = JdbcMetrics.start();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(fetchSize);
+            start = JdbcMetrics.record(query, JdbcMetrics.Phase.PREPARE, start);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                start = JdbcMetrics.record(query, JdbcMetrics.Phase.EXECUTE, start);
+                long rowCount = writeResultSetToCSV(resultSet, out);
+                JdbcMetrics.record(query, JdbcMetrics.Phase.FETCH, start);
+                JdbcMetrics.recordRows(query, rowCount);
+                return rowCount;
             }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(query);
+            throw e;
+        }
+    }
 
-            csvPrinter.flush();
-            return byteStream.toByteArray();
+    /**
+     * Runs a query and streams its result as CSV into a file.
+     *
+     * @param connection The JDBC Connection.
+     * @param query The SELECT query to export.
+     * @param fetchSize The number of rows the driver should fetch per round trip.
+     * @param file The target file; created or truncated.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long exportQueryToCSV(Connection connection, String query, int fetchSize, Path file) throws SQLException, IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return exportQueryToCSV(connection, query, fetchSize, out);
         }
     }
 
@@ -56,6 +129,138 @@ public class CSVUtil {
             preparedStatement.setBytes(1, csvData);
             preparedStatement.setInt(2, id);
             preparedStatement.executeUpdate();
+            QueryResultCache.invalidateTableEverywhere(tableName);
+        }
+    }
+
+    /**
+     * Stores CSV data read from a stream in a BLOB column without buffering it in memory.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvStream The stream supplying the CSV data; read to the end but not closed.
+     * @param tableName The table name where the BLOB is stored.
+     * @param id The primary key for identification.
+     * @throws SQLException
+     */
+    public static void storeCSVInBlob(Connection connection, InputStream csvStream, String tableName, int id) throws SQLException {
+        String sql = "UPDATE " + tableName + " SET csv_blob = ? WHERE id = ?";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setBinaryStream(1, csvStream);
+            preparedStatement.setInt(2, id);
+            preparedStatement.executeUpdate();
+            QueryResultCache.invalidateTableEverywhere(tableName);
+        }
+    }
+
+    /**
+     * Stores a CSV file in a BLOB column, streaming it from disk.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvFile The CSV file to store.
+     * @param tableName The table name where the BLOB is stored.
+     * @param id The primary key for identification.
+     * @throws SQLException, IOException
+     */
+    public static void storeCSVInBlob(Connection connection, Path csvFile, String tableName, int id) throws SQLException, IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(csvFile), WRITE_BUFFER_SIZE)) {
+            storeCSVInBlob(connection, in, tableName, id);
+        }
+    }
+
+    /**
+     * Stores CSV data read from a stream in a BLOB column, compressing it while it streams.
+     * Read it back with any of the BLOB import methods, which detect the codec.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvStream The stream supplying the CSV data; read to the end but not closed.
+     * @param tableName The table name where the BLOB is stored.
+     * @param id The primary key for identification.
+     * @param codec The compression of the stored data.
+     * @param level The compression level, 1 to 9 or Deflater.DEFAULT_COMPRESSION.
+     * @throws SQLException, IOException
+     */
+    public static void storeCSVInBlob(Connection connection, InputStream csvStream, String tableName, int id, CSVBlobCodec codec, int level) throws SQLException, IOException {
+        if (codec == CSVBlobCodec.NONE) {
+            storeCSVInBlob(connection, csvStream, tableName, id);
+            return;
+        }
+        Blob blob = connection.createBlob();
+        try {
+            byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+            try (OutputStream blobStream = codec.encode(blob.setBinaryStream(1), level)) {
+                int n;
+                while ((n = csvStream.read(buffer)) > 0) {
+                    blobStream.write(buffer, 0, n);
+                }
+            }
+            updateBlob(connection, tableName, id, blob);
+        } finally {
+            blob.free();
+        }
+    }
+
+    /**
+     * Runs a query and streams its result as CSV straight into a BLOB column.
+     * Rows are written through {@link Blob#setBinaryStream(long)}, so the export is never
+     * held in memory as a whole.
+     *
+     * @param connection The JDBC Connection.
+     * @param query The SELECT query to export.
+     * @param fetchSize The number of rows the driver should fetch per round trip.
+     * @param tableName The table name where the BLOB is stored.
+     * @param id The primary key for identification.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long storeQueryResultInBlob(Connection connection, String query, int fetchSize, String tableName, int id) throws SQLException, IOException {
+        return storeQueryResultInBlob(connection, query, fetchSize, tableName, id, CSVBlobCodec.NONE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Runs a query and streams its result as compressed CSV into a BLOB column.
+     *
+     * @param connection The JDBC Connection.
+     * @param query The SELECT query to export.
+     * @param fetchSize The number of rows the driver should fetch per round trip.
+     * @param tableName The table name where the BLOB is stored.
+     * @param id The primary key for identification.
+     * @param codec The compression of the stored data.
+     * @param level The compression level, 1 to 9 or Deflater.DEFAULT_COMPRESSION.
+     * @return The number of data rows written.
+     * @throws SQLException, IOException
+     */
+    public static long storeQueryResultInBlob(Connection connection, String query, int fetchSize, String tableName, int id, CSVBlobCodec codec, int level) throws SQLException, IOException {
+        Blob blob = connection.createBlob();
+        try {
+            long rowCount;
+            try (OutputStream blobStream = codec.encode(blob.setBinaryStream(1), level)) {
+                rowCount = exportQueryToCSV(connection, query, fetchSize, blobStream);
+            }
+            updateBlob(connection, tableName, id, blob);
+            return rowCount;
+        } finally {
+            blob.free();
+        }
+    }
+
+    /**
+     * Prepares the query reading a BLOB to import. Only an import that commits needs the cursor
+     * to stay open across commits, so holdability is requested only then.
+     */
+    private static PreparedStatement prepareBlobQuery(Connection connection, String sql, int commitInterval) throws SQLException {
+        if (commitInterval > 0) {
+            return connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT);
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    private static void updateBlob(Connection connection, String tableName, int id, Blob blob) throws SQLException {
+        String sql = "UPDATE " + tableName + " SET csv_blob = ? WHERE id = ?";
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setBlob(1, blob);
+            preparedStatement.setInt(2, id);
+            preparedStatement.executeUpdate();
+            QueryResultCache.invalidateTableEverywhere(tableName);
         }
     }
 
@@ -69,33 +274,285 @@ public class CSVUtil {
      * @throws SQLException, IOException
      */
     public static void readCSVFromBlobAndInsertToDB(Connection connection, String tableName, int id, String targetTable) throws SQLException, IOException {
+        readCSVFromBlobAndInsertToDB(connection, tableName, id, targetTable, DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Streams CSV data from a BLOB column into a target table in bounded batches.
+     * The BLOB is read through {@link ResultSet#getBinaryStream(String)}, so only one batch of
+     * records is held in memory at a time. Compressed blobs are inflated on the fly.
+     * Cells are bound with setString; for typed binding pass {@link CSVImportOptions}.
+     *
+     * When commitInterval is positive the import runs with auto-commit disabled and commits
+     * after every batch that brings the uncommitted row count to at least commitInterval;
+     * a failure rolls back only the rows since the last commit. The BLOB cursor is then opened
+     * with {@link ResultSet#HOLD_CURSORS_OVER_COMMIT}; drivers that cannot keep it open
+     * across commits should use a commitInterval of 0, which leaves transactions to the caller
+     * and opens the cursor with the driver's default holdability.
+     *
+     * @param connection The JDBC Connection.
+     * @param tableName The table where the BLOB is stored.
+     * @param id The primary key to locate the BLOB.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @return Row count and throughput of the import.
+     * @throws SQLException, IOException
+     */
+    public static CSVImportStats readCSVFromBlobAndInsertToDB(Connection connection, String tableName, int id, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+        return readCSVFromBlobAndInsertToDB(connection, tableName, id, targetTable, batchSize, commitInterval, new CSVImportOptions());
+    }
+
+    /**
+     * Streams CSV data from a BLOB column into a target table, converting cells as the options say.
+     *
+     * @param connection The JDBC Connection.
+     * @param tableName The table where the BLOB is stored.
+     * @param id The primary key to locate the BLOB.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @param options The null token, date formats and whether to bind typed values.
+     * @return Row count and throughput of the import.
+     * @throws SQLException, IOException
+     * @see #readCSVFromBlobAndInsertToDB(Connection, String, int, String, int, int)
+     */
+    public static CSVImportStats readCSVFromBlobAndInsertToDB(Connection connection, String tableName, int id, String targetTable, int batchSize, int commitInterval, CSVImportOptions options) throws SQLException, IOException {
+        long start = System.nanoTime();
         String sql = "SELECT csv_blob FROM " + tableName + " WHERE id = ?";
-        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (PreparedStatement preparedStatement = prepareBlobQuery(connection, sql, commitInterval)) {
             preparedStatement.setInt(1, id);
-            ResultSet resultSet = preparedStatement.executeQuery();
 
-            if (resultSet.next()) {
-                byte[] csvData = resultSet.getBytes("csv_blob");
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+                }
 
-                try (InputStream byteStream = new ByteArrayInputStream(csvData);
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(byteStream));
+                try (InputStream blobStream = CSVBlobCodec.decode(resultSet.getBinaryStream("csv_blob"));
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(blobStream, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
                      CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                    return insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, options, start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Imports a UTF-8 CSV file from local disk, parsing chunks of it in parallel, each chunk
+     * inserted in batches on its own connection.
+     *
+     * @param connections Where each chunk borrows its connection.
+     * @param csvFile The CSV file; its first record names the target columns.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param parallelism The number of chunks parsed and inserted at once.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits; must be positive.
+     * @return Row count and throughput of the import.
+     * @throws SQLException, IOException
+     * @see CSVFileIngest
+     */
+    public static CSVImportStats importCSVFile(ConnectionFactory connections, Path csvFile, String targetTable, int parallelism, int batchSize, int commitInterval) throws SQLException, IOException {
+        return new CSVFileIngest(connections, parallelism, batchSize, commitInterval).load(csvFile, targetTable);
+    }
+
+    /**
+     * Streams CSV data from a BLOB column into a target table so that a failed import can be re-run
+     * without reloading what it already committed. Progress is kept per BLOB and target table in the
+     * {@value CSVImportCheckpoint#TABLE} control table, saved in the same transaction as each commit.
+     * A re-run skips the committed records and continues after them; once an import has completed,
+     * re-running it loads nothing until {@link CSVImportCheckpoint#clear} resets it.
+     *
+     * @param connection The JDBC Connection.
+     * @param tableName The table where the BLOB is stored.
+     * @param id The primary key to locate the BLOB.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits; must be positive.
+     * @param options The null token, date formats and whether to bind typed values.
+     * @return Row count and throughput of the records loaded by this run.
+     * @throws SQLException, IOException
+     */
+    public static CSVImportStats resumeCSVFromBlobAndInsertToDB(Connection connection, String tableName, int id, String targetTable, int batchSize, int commitInterval, CSVImportOptions options) throws SQLException, IOException {
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("A resumable import needs a positive commitInterval: " + commitInterval);
+        }
+        long start = System.nanoTime();
+        CSVImportCheckpoint checkpoint = CSVImportCheckpoint.load(connection, CSVImportCheckpoint.blobSourceId(tableName, id, targetTable));
+        if (checkpoint.isCompleted()) {
+            return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+        }
+
+        String sql = "SELECT csv_blob FROM " + tableName + " WHERE id = ?";
+        try (PreparedStatement preparedStatement = prepareBlobQuery(connection, sql, commitInterval)) {
+            preparedStatement.setInt(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new CSVImportStats(0, 0, 0, System.nanoTime() - start);
+                }
 
-                    List<String> columns = csvParser.getHeaderNames();
-                    String insertSQL = buildInsertSQL(targetTable, columns);
+                try (InputStream blobStream = CSVBlobCodec.decode(resultSet.getBinaryStream("csv_blob"));
+                     BufferedReader reader = new BufferedReader(new InputStreamReader(blobStream, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+                     CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                    return insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, options, checkpoint, start);
+                }
+            }
+        }
+    }
 
-                    try (PreparedStatement insertStatement = connection.prepareStatement(insertSQL)) {
-                        for (CSVRecord record : csvParser) {
-                            for (int i = 0; i < columns.size(); i++) {
-                                insertStatement.setString(i + 1, record.get(columns.get(i)));
-                            }
-                            insertStatement.addBatch();
+    /**
+     * Loads CSV data from a BLOB column into a target table with the bulk-load strategy
+     * {@link BulkLoadStrategies#forConnection(Connection)} picks for the database, falling back to
+     * batched INSERTs where no native bulk path is available. Native strategies do not apply
+     * {@link CSVImportOptions}, and they load unquoted empty cells as NULL.
+     *
+     * @param connection The JDBC Connection.
+     * @param tableName The table where the BLOB is stored.
+     * @param id The primary key to locate the BLOB.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call by batching strategies.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @return Row count and throughput of the import.
+     * @throws SQLException, IOException
+     */
+    public static CSVImportStats bulkLoadCSVFromBlob(Connection connection, String tableName, int id, String targetTable, int batchSize, int commitInterval) throws SQLException, IOException {
+        return bulkLoadCSVFromBlob(connection, tableName, id, targetTable, batchSize, commitInterval, BulkLoadStrategies.forConnection(connection));
+    }
+
+    /**
+     * Loads CSV data from a BLOB column into a target table with the given bulk-load strategy.
+     *
+     * @param connection The JDBC Connection.
+     * @param tableName The table where the BLOB is stored.
+     * @param id The primary key to locate the BLOB.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call by batching strategies.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @param strategy The strategy loading the data.
+     * @return Row count and throughput of the import.
+     * @throws SQLException, IOException
+     */
+    public static CSVImportStats bulkLoadCSVFromBlob(Connection connection, String tableName, int id, String targetTable, int batchSize, int commitInterval, BulkLoadStrategy strategy) throws SQLException, IOException {
+        String sql = "SELECT csv_blob FROM " + tableName + " WHERE id = ?";
+        try (PreparedStatement preparedStatement = prepareBlobQuery(connection, sql, commitInterval)) {
+            preparedStatement.setInt(1, id);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return new CSVImportStats(0, 0, 0, 0);
+                }
+
+                try (InputStream blobStream = new BufferedInputStream(CSVBlobCodec.decode(resultSet.getBinaryStream("csv_blob")), READ_BUFFER_SIZE)) {
+                    return strategy.load(connection, blobStream, targetTable, batchSize, commitInterval);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the records of a parsed CSV into a target table, flushing a batch every
+     * batchSize records and committing at the given interval.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvParser The parser positioned after the header record.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @param start The System.nanoTime() value the import started at.
+     * @return Row count and throughput of the import.
+     * @throws SQLException
+     */
+    static CSVImportStats insertRecords(Connection connection, CSVParser csvParser, String targetTable, int batchSize, int commitInterval, long start) throws SQLException {
+        return insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, new CSVImportOptions(), start);
+    }
+
+    /**
+     * Inserts the records of a parsed CSV into a target table, binding cells as the options say.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvParser The parser positioned after the header record.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @param options How cells are converted to parameter values.
+     * @param start The System.nanoTime() value the import started at.
+     * @return Row count and throughput of the import.
+     * @throws SQLException
+     */
+    static CSVImportStats insertRecords(Connection connection, CSVParser csvParser, String targetTable, int batchSize, int commitInterval, CSVImportOptions options, long start) throws SQLException {
+        return insertRecords(connection, csvParser, targetTable, batchSize, commitInterval, options, null, start);
+    }
+
+    /**
+     * Inserts the records of a parsed CSV into a target table, resuming after the records a checkpoint
+     * has already committed and saving the checkpoint in the transaction of every commit.
+     *
+     * @param connection The JDBC Connection.
+     * @param csvParser The parser positioned after the header record.
+     * @param targetTable The database table where CSV data will be inserted.
+     * @param batchSize The number of records sent per executeBatch call.
+     * @param commitInterval The minimum number of rows between commits, or 0 to never commit.
+     * @param options How cells are converted to parameter values.
+     * @param checkpoint The progress to resume from and update, or null to insert every record.
+     * @param start The System.nanoTime() value the import started at.
+     * @return Row count and throughput of the records inserted by this call.
+     * @throws SQLException
+     */
+    static CSVImportStats insertRecords(Connection connection, CSVParser csvParser, String targetTable, int batchSize, int commitInterval, CSVImportOptions options, CSVImportCheckpoint checkpoint, long start) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        List<String> columns = csvParser.getHeaderNames();
+        int columnCount = columns.size();
+        String insertSQL = buildInsertSQL(targetTable, columns);
+        CSVColumnBinder[] binders = CSVColumnBinder.forColumns(connection, targetTable, columns, options);
+
+        BatchInserts.Transaction transaction = BatchInserts.begin(connection, insertSQL, targetTable, commitInterval);
+        long skip = checkpoint == null ? 0 : checkpoint.getRecordOffset();
+        long skipped = 0;
+        long rows = 0;
+        int pending = 0;
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSQL)) {
+            for (CSVRecord record : csvParser) {
+                if (skipped < skip) {
+                    skipped++;
+                    continue;
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    binders[i].bind(insertStatement, i + 1, record.get(i));
+                }
+                insertStatement.addBatch();
+                rows++;
+
+                if (++pending == batchSize) {
+                    transaction.executeBatch(insertStatement, pending);
+                    pending = 0;
+
+                    if (transaction.isCommitDue()) {
+                        if (checkpoint != null) {
+                            checkpoint.save(connection, skipped + rows, transaction.getUncommitted(), false);
                         }
-                        insertStatement.executeBatch();
+                        transaction.commit();
                     }
                 }
             }
+
+            // Flush the last partial batch
+            if (pending > 0) {
+                transaction.executeBatch(insertStatement, pending);
+            }
+            if (checkpoint != null) {
+                checkpoint.save(connection, skipped + rows, transaction.getUncommitted(), true);
+            }
+            transaction.commit();
+        } catch (SQLException | RuntimeException e) {
+            transaction.rollback(e);
+            throw e;
+        } finally {
+            transaction.end();
         }
+
+        return new CSVImportStats(rows, transaction.getBatches(), transaction.getCommits(), System.nanoTime() - start);
     }
 
     /**
@@ -0,0 +1,128 @@
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generated keys collected in insert order. Integral keys are kept in a growable long[]
+ * without boxing; the first non-integral key switches the container to objects.
+ */
+public class GeneratedKeys {
+    private long[] longKeys = new long[16];   // Keys while all of them are integral
+    private Object[] objectKeys;              // Keys once a non-integral key has been seen
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNumeric() {
+        return objectKeys == null;
+    }
+
+    public long getLong(int index) {
+        checkIndex(index);
+        return objectKeys == null ? longKeys[index] : ((Number) objectKeys[index]).longValue();
+    }
+
+    public Object get(int index) {
+        checkIndex(index);
+        return objectKeys == null ? longKeys[index] : objectKeys[index];
+    }
+
+    /**
+     * Returns the keys as a long array.
+     *
+     * @throws IllegalStateException if some key is not integral
+     */
+    public long[] toLongArray() {
+        if (objectKeys != null) {
+            throw new IllegalStateException("Generated keys are not all integral");
+        }
+        return Arrays.copyOf(longKeys, size);
+    }
+
+    public List<Object> toList() {
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Appends the first column of every row of a generated-keys ResultSet.
+     * A result without columns, which some drivers return when no keys were generated, adds nothing.
+     *
+     * @return The number of keys appended
+     */
+    int addAll(ResultSet keys) throws SQLException {
+        ResultSetMetaData metaData = keys.getMetaData();
+        if (metaData.getColumnCount() == 0) {
+            return 0;
+        }
+        int before = size;
+        boolean integral = objectKeys == null && isIntegral(metaData);
+        while (keys.next()) {
+            if (integral) {
+                long key = keys.getLong(1);
+                if (!keys.wasNull()) {
+                    addLong(key);
+                    continue;
+                }
+            }
+            addObject(keys.getObject(1));
+        }
+        return size - before;
+    }
+
+    private void addLong(long key) {
+        if (size == longKeys.length) {
+            longKeys = Arrays.copyOf(longKeys, size * 2);
+        }
+        longKeys[size++] = key;
+    }
+
+    private void addObject(Object key) {
+        if (objectKeys == null) {
+            objectKeys = new Object[Math.max(16, longKeys.length)];
+            for (int i = 0; i < size; i++) {
+                objectKeys[i] = longKeys[i];
+            }
+            longKeys = null;
+        }
+        if (size == objectKeys.length) {
+            objectKeys = Arrays.copyOf(objectKeys, size * 2);
+        }
+        objectKeys[size++] = key;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static boolean isIntegral(ResultSetMetaData metaData) throws SQLException {
+        switch (metaData.getColumnType(1)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return metaData.getScale(1) == 0 && metaData.getPrecision(1) <= 18;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GeneratedKeys{size=" + size + ", numeric=" + isNumeric() + '}';
+    }
+}
@@ -1,8 +1,52 @@
 import java.sql.*;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JDBCUtil {
 
+    /**
+     * Enables a per-connection PreparedStatement cache of the given size for
+     * executeQuery and executeUpdate; 0 disables it.
+     *
+     * @param maxStatementsPerConnection The LRU bound of each connection's cache
+     * @see StatementCache
+     */
+    public static void setStatementCacheSize(int maxStatementsPerConnection) {
+        StatementCache.setDefaultMaxSize(maxStatementsPerConnection);
+    }
+
+    /**
+     * Borrows a pooled connection to the given host. Credentials and the JDBC URL are looked
+     * up in DatabaseCredentialStore; closing the connection returns it to the pool.
+     *
+     * @param host The hostname the credentials are registered under
+     * @return A pooled Connection
+     * @throws SQLException if no connection could be obtained
+     */
+    public static Connection getConnection(String host) throws SQLException {
+        return ConnectionPool.forHost(host).borrow();
+    }
+
+    /**
+     * Borrows a pooled connection to the default host, set through
+     * ConnectionPool.setDefaultHost or the {@value ConnectionPool#DEFAULT_HOST_PROPERTY} system property.
+     *
+     * @return A pooled Connection
+     * @throws SQLException if no default host is configured or no connection could be obtained
+     */
+    public static Connection getConnection() throws SQLException {
+        String host = ConnectionPool.getDefaultHost();
+        if (host == null) {
+            throw new SQLException("No default host configured; set the " + ConnectionPool.DEFAULT_HOST_PROPERTY + " system property");
+        }
+        return getConnection(host);
+    }
+
     /**
      * Executes a parameterized SELECT query and processes the ResultSet.
      *
@@ -15,12 +59,25 @@ public class JDBCUtil {
      * @throws SQLException if a database access error occurs
      */
     public static <T> T executeQuery(Connection conn, String sql, Map<Integer, SqlParameter> parameters, ResultSetHandler<T> handler) throws SQLException {
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            setParameters(pstmt, parameters);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return handler.handle(rs);
-            }
-        }
+        return query(conn, sql, pstmt -> setParameters(pstmt, parameters), handler);
+    }
+
+    /**
+     * Executes a parameterized SELECT query through the default {@link QueryResultCache}.
+     * Repeated calls with the same SQL, parameter values and handler instance return the cached result
+     * until it expires or a write through JDBCUtil touches one of the tables the query reads.
+     * The result is shared between callers and must not be modified.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @param handler    A ResultSetHandler to process the ResultSet
+     * @param <T>        The type of the processed result
+     * @return The cached or freshly processed result
+     * @throws SQLException if a database access error occurs
+     */
+    public static <T> T executeCachedQuery(Connection conn, String sql, Map<Integer, SqlParameter> parameters, ResultSetHandler<T> handler) throws SQLException {
+        return QueryResultCache.getDefault().get(conn, sql, parameters, handler, () -> executeQuery(conn, sql, parameters, handler));
     }
 
     /**
@@ -33,9 +90,242 @@ public class JDBCUtil {
      * @throws SQLException if a database access error occurs
      */
     public static int executeUpdate(Connection conn, String sql, Map<Integer, SqlParameter> parameters) throws SQLException {
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            setParameters(pstmt, parameters);
-            return pstmt.executeUpdate();
+        return update(conn, sql, pstmt -> setParameters(pstmt, parameters));
+    }
+
+    /**
+     * Executes a parameterized SELECT query bound from an indexed SqlParameters list.
+     * Primitive values are bound without boxing.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param parameters The parameter values, by index
+     * @param handler    A ResultSetHandler to process the ResultSet
+     * @param <T>        The type of the processed result
+     * @return The processed result
+     * @throws SQLException if a database access error occurs
+     */
+    public static <T> T executeQuery(Connection conn, String sql, SqlParameters parameters, ResultSetHandler<T> handler) throws SQLException {
+        return query(conn, sql, parameters::bind, handler);
+    }
+
+    /**
+     * Executes a parameterized SELECT query using a binder compiled for its SQL shape.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param binder     The binder compiled for the parameter types of this query
+     * @param parameters The parameter values, by index
+     * @param handler    A ResultSetHandler to process the ResultSet
+     * @param <T>        The type of the processed result
+     * @return The processed result
+     * @throws SQLException if a database access error occurs
+     */
+    public static <T> T executeQuery(Connection conn, String sql, SqlBinder binder, SqlParameters parameters, ResultSetHandler<T> handler) throws SQLException {
+        return query(conn, sql, pstmt -> binder.bind(pstmt, parameters), handler);
+    }
+
+    /**
+     * Executes a parameterized DML query bound from an indexed SqlParameters list.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param parameters The parameter values, by index
+     * @return Number of rows affected
+     * @throws SQLException if a database access error occurs
+     */
+    public static int executeUpdate(Connection conn, String sql, SqlParameters parameters) throws SQLException {
+        return update(conn, sql, parameters::bind);
+    }
+
+    /**
+     * Executes a parameterized DML query using a binder compiled for its SQL shape.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param binder     The binder compiled for the parameter types of this statement
+     * @param parameters The parameter values, by index
+     * @return Number of rows affected
+     * @throws SQLException if a database access error occurs
+     */
+    public static int executeUpdate(Connection conn, String sql, SqlBinder binder, SqlParameters parameters) throws SQLException {
+        return update(conn, sql, pstmt -> binder.bind(pstmt, parameters));
+    }
+
+    /**
+     * Executes a parameterized SELECT query and returns its rows as a lazily populated Stream.
+     * Rows are fetched from the driver fetchSize at a time while the stream is consumed, so a
+     * large scan runs in constant memory.
+     *
+     * The statement and result set stay open until the stream is closed or fully consumed;
+     * use try-with-resources when the stream may be abandoned early, e.g. after findFirst or limit.
+     * Some drivers (such as PostgreSQL) only honor the fetch size with auto-commit disabled.
+     * Database errors while reading are rethrown as IllegalStateException.
+     *
+     * @param conn       The Connection object
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @param fetchSize  The number of rows the driver should fetch per round trip
+     * @param mapper     A RowMapper turning each row into an element
+     * @param <T>        The element type
+     * @return A sequential Stream over the mapped rows
+     * @throws SQLException if the query cannot be executed
+     */
+    public static <T> Stream<T> stream(Connection conn, String sql, Map<Integer, SqlParameter> parameters, int fetchSize, RowMapper<T> mapper) throws SQLException {
+        return openStream(conn, sql, fetchSize, pstmt -> setParameters(pstmt, parameters), mapper);
+    }
+
+    /**
+     * Executes a parameterized SELECT query bound from an indexed SqlParameters list and
+     * returns its rows as a lazily populated Stream.
+     *
+     * @see #stream(Connection, String, Map, int, RowMapper)
+     */
+    public static <T> Stream<T> stream(Connection conn, String sql, SqlParameters parameters, int fetchSize, RowMapper<T> mapper) throws SQLException {
+        return openStream(conn, sql, fetchSize, parameters::bind, mapper);
+    }
+
+    /**
+     * Executes a parameterized SELECT query and streams its rows mapped to the given class
+     * through {@link RowMappers}.
+     *
+     * @see #stream(Connection, String, Map, int, RowMapper)
+     */
+    public static <T> Stream<T> stream(Connection conn, String sql, Map<Integer, SqlParameter> parameters, int fetchSize, Class<T> type) throws SQLException {
+        return openStream(conn, sql, fetchSize, pstmt -> setParameters(pstmt, parameters), null, type);
+    }
+
+    private static <T> Stream<T> openStream(Connection conn, String sql, int fetchSize, ParameterBinder binder, RowMapper<T> mapper) throws SQLException {
+        return openStream(conn, sql, fetchSize, binder, mapper, null);
+    }
+
+    private static <T> Stream<T> openStream(Connection conn, String sql, int fetchSize, ParameterBinder binder, RowMapper<T> mapper, Class<T> type) throws SQLException {
+        long start = JdbcMetrics.start();
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            pstmt.setFetchSize(fetchSize);
+            binder.bind(pstmt);
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.PREPARE, start);
+            ResultSet rs = pstmt.executeQuery();
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            RowMapper<T> rowMapper = mapper != null ? mapper : RowMappers.forResultSet(type, rs.getMetaData());
+            ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(sql, pstmt, rs, rowMapper, start);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (SQLException | RuntimeException e) {
+            JdbcMetrics.recordError(sql);
+            pstmt.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a query through the statement cache, timing each phase in JdbcMetrics.
+     * The binder runs immediately before execution.
+     */
+    static <T> T query(Connection conn, String sql, ParameterBinder binder, ResultSetHandler<T> handler) throws SQLException {
+        long start = JdbcMetrics.start();
+        try (StatementCache.Lease lease = StatementCache.lease(conn, sql)) {
+            PreparedStatement pstmt = lease.getStatement();
+            binder.bind(pstmt);
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.PREPARE, start);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+                T result = handler.handle(rs);
+                JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
+                if (result instanceof Collection) {
+                    JdbcMetrics.recordRows(sql, ((Collection<?>) result).size());
+                }
+                return result;
+            }
+        } catch (SQLException | RuntimeException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a DML statement through the statement cache, timing it in JdbcMetrics and
+     * invalidating cached query results of the tables it writes.
+     */
+    static int update(Connection conn, String sql, ParameterBinder binder) throws SQLException {
+        long start = JdbcMetrics.start();
+        try (StatementCache.Lease lease = StatementCache.lease(conn, sql)) {
+            PreparedStatement pstmt = lease.getStatement();
+            binder.bind(pstmt);
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.PREPARE, start);
+            int rows = pstmt.executeUpdate();
+            JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordRows(sql, rows);
+            QueryResultCache.invalidateWritesOf(conn, sql);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    /**
+     * Advances a ResultSet one row per element and releases it once exhausted or closed.
+     */
+    private static final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final String sql;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private final long start;
+        private long rows;
+        private boolean closed;
+
+        private ResultSetSpliterator(String sql, PreparedStatement pstmt, ResultSet rs, RowMapper<T> mapper, long start) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.sql = sql;
+            this.pstmt = pstmt;
+            this.rs = rs;
+            this.mapper = mapper;
+            this.start = start;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                rows++;
+                action.accept(mapper.mapRow(rs));
+                return true;
+            } catch (SQLException e) {
+                JdbcMetrics.recordError(sql);
+                close();
+                throw new IllegalStateException("Error while reading the next row", e);
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
+            JdbcMetrics.recordRows(sql, rows);
+            try {
+                try {
+                    rs.close();
+                } finally {
+                    pstmt.close();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error while closing the query stream", e);
+            }
         }
     }
 
@@ -46,7 +336,7 @@ public class JDBCUtil {
      * @param parameters A map of parameter index to SqlParameter objects
      * @throws SQLException if a database access error occurs
      */
-    private static void setParameters(PreparedStatement pstmt, Map<Integer, SqlParameter> parameters) throws SQLException {
+    static void setParameters(PreparedStatement pstmt, Map<Integer, SqlParameter> parameters) throws SQLException {
         for (Map.Entry<Integer, SqlParameter> entry : parameters.entrySet()) {
             int index = entry.getKey();
             SqlParameter param = entry.getValue();
@@ -17,22 +17,181 @@ public class JDBCUtil {
     public static List<Object> executeInsertWithGeneratedKeys(Connection conn, String sql, Map<Integer, SqlParameter> parameters) throws SQLException {
         List<Object> generatedKeys = new ArrayList<>();
 
+        long start = JdbcMetrics.start();
         try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             setParameters(stmt, parameters);
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.PREPARE, start);
 
             int rowsAffected = stmt.executeUpdate();
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordRows(sql, rowsAffected);
+            QueryResultCache.invalidateWritesOf(conn, sql);
             if (rowsAffected > 0) {
                 try (ResultSet keys = stmt.getGeneratedKeys()) {
                     while (keys.next()) {
                         generatedKeys.add(keys.getObject(1)); // Retrieve the first column as the key
                     }
                 }
+                JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
             }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
         }
 
         return generatedKeys;
     }
 
+    /**
+     * Executes an INSERT statement bound from an indexed SqlParameters list and retrieves generated keys.
+     *
+     * @param conn         The database connection.
+     * @param sql          The INSERT SQL statement.
+     * @param parameters   The parameter values, by index.
+     * @return List of generated keys as a result of the INSERT.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static List<Object> executeInsertWithGeneratedKeys(Connection conn, String sql, SqlParameters parameters) throws SQLException {
+        List<Object> generatedKeys = new ArrayList<>();
+
+        long start = JdbcMetrics.start();
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            parameters.bind(stmt);
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.PREPARE, start);
+
+            int rowsAffected = stmt.executeUpdate();
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordRows(sql, rowsAffected);
+            QueryResultCache.invalidateWritesOf(conn, sql);
+            if (rowsAffected > 0) {
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generatedKeys.add(keys.getObject(1));
+                    }
+                }
+                JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
+            }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+
+        return generatedKeys;
+    }
+
+    /**
+     * Inserts many rows through one batched statement and retrieves all generated keys in insert order.
+     * Each executeBatch call returns the keys of its rows, so parents can be inserted in a few
+     * round trips and their keys used for child rows. The first column of the generated-keys
+     * result is collected; integral keys are stored without boxing.
+     * Key i belongs to row i only if every row generated exactly one key, so each batch must
+     * return as many keys as it has rows. Drivers that return no keys for batches, and statements
+     * that skip rows (e.g. INSERT ... ON CONFLICT DO NOTHING), fail instead of misaligning keys.
+     *
+     * @param conn         The database connection.
+     * @param sql          The INSERT SQL statement.
+     * @param rows         The map of parameters for each row.
+     * @param batchSize    The number of rows to include in each batch execution.
+     * @return The generated keys of all rows, in insert order.
+     * @throws SQLException If a database access error occurs, or if a batch returns a different
+     *                      number of keys than rows; the rows of earlier batches, and of that one,
+     *                      are already executed in the caller's transaction.
+     */
+    public static GeneratedKeys executeBatchInsertWithGeneratedKeys(Connection conn, String sql, List<Map<Integer, SqlParameter>> rows, int batchSize) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            return executeBatchInsert(sql, stmt, rows, batchSize);
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    /**
+     * Inserts many rows through one batched statement and retrieves the named key column of every row.
+     * Naming the key column keeps drivers that return whole rows or ROWIDs (PostgreSQL, Oracle)
+     * returning just the key. As with the variant without keyColumn, each batch must return one
+     * key per row.
+     *
+     * @param conn         The database connection.
+     * @param sql          The INSERT SQL statement.
+     * @param rows         The map of parameters for each row.
+     * @param batchSize    The number of rows to include in each batch execution.
+     * @param keyColumn    The name of the generated key column.
+     * @return The generated keys of all rows, in insert order.
+     * @throws SQLException If a database access error occurs, or if a batch returns a different
+     *                      number of keys than rows.
+     */
+    public static GeneratedKeys executeBatchInsertWithGeneratedKeys(Connection conn, String sql, List<Map<Integer, SqlParameter>> rows, int batchSize, String keyColumn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, new String[] { keyColumn })) {
+            return executeBatchInsert(sql, stmt, rows, batchSize);
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    /**
+     * Adds the rows to the statement's batch, executing every batchSize rows and collecting the keys.
+     *
+     * @param sql          The INSERT SQL statement.
+     * @param stmt         The PreparedStatement prepared to return generated keys.
+     * @param rows         The map of parameters for each row.
+     * @param batchSize    The number of rows to include in each batch execution.
+     * @return The generated keys of all rows, in insert order.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static GeneratedKeys executeBatchInsert(String sql, PreparedStatement stmt, List<Map<Integer, SqlParameter>> rows, int batchSize) throws SQLException {
+        GeneratedKeys generatedKeys = new GeneratedKeys();
+        int pending = 0;
+
+        for (Map<Integer, SqlParameter> parameters : rows) {
+            setParameters(stmt, parameters);
+            stmt.addBatch();
+
+            if (++pending == batchSize) {
+                executeAndCollectKeys(sql, stmt, pending, generatedKeys);
+                pending = 0;
+            }
+        }
+
+        // Execute remaining rows
+        if (pending > 0) {
+            executeAndCollectKeys(sql, stmt, pending, generatedKeys);
+        }
+
+        return generatedKeys;
+    }
+
+    /**
+     * Executes the pending batch and appends the keys it generated.
+     *
+     * @param sql           The INSERT SQL statement.
+     * @param stmt          The PreparedStatement holding the batch.
+     * @param pending       The number of rows in the batch.
+     * @param generatedKeys The container to append the keys to.
+     * @throws SQLException If a database access error occurs, or if the batch did not return one key per row.
+     */
+    private static void executeAndCollectKeys(String sql, PreparedStatement stmt, int pending, GeneratedKeys generatedKeys) throws SQLException {
+        long start = JdbcMetrics.start();
+        try {
+            stmt.executeBatch();
+            start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+            JdbcMetrics.recordBatch(sql, pending);
+            JdbcMetrics.recordRows(sql, pending);
+            int added;
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                added = keys == null ? 0 : generatedKeys.addAll(keys);
+            }
+            JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
+            if (added != pending) {
+                // Keys are matched to rows by position only, so any other count would misalign them
+                throw new SQLException("A batch of " + pending + " rows returned " + added +
+                        " generated keys; keys can only be matched to rows when each row returns one");
+            }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+    }
+
     /**
      * Sets parameters on a PreparedStatement based on the provided map.
      *
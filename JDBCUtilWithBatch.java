@@ -1,9 +1,24 @@
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class JDBCUtil {
 
+    /**
+     * Default bound on the bind parameters of one rewritten multi-row INSERT. It stays below
+     * the limits of common drivers, such as SQL Server's 2100.
+     */
+    public static final int DEFAULT_MAX_PARAMETERS = 2000;
+
+    // INSERT ... VALUES (?, ...) [suffix], with a single row tuple of placeholders and plain expressions
+    private static final Pattern SINGLE_ROW_INSERT = Pattern.compile("(?is)^\\s*(INSERT\\s+INTO\\s+.+?\\bVALUES\\s*)(\\([^()'\"]*\\))(\\s*(?:ON\\s+.*|RETURNING\\s+.*)?;?\\s*)$");
+
     /**
      * Executes a batch of SQL statements with parameters for different tables and controls the batch size.
      *
@@ -16,7 +31,8 @@ public class JDBCUtil {
      */
     public static int[] executeInBatch(Connection conn, String sql, List<Map<Integer, SqlParameter>> batchParams, int batchSize) throws SQLException {
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            int[] totalUpdateCounts = new int[0];
+            int[] totalUpdateCounts = new int[batchParams.size()];
+            int written = 0;
             int counter = 0;
 
             for (Map<Integer, SqlParameter> parameters : batchParams) {
@@ -25,31 +41,361 @@ public class JDBCUtil {
                 counter++;
 
                 if (counter % batchSize == 0) {
-                    totalUpdateCounts = mergeArrays(totalUpdateCounts, stmt.executeBatch());
+                    written = copyInto(totalUpdateCounts, written, BatchInserts.executeBatch(sql, stmt, batchSize));
                 }
             }
 
             // Execute remaining batches
             if (counter % batchSize != 0) {
-                totalUpdateCounts = mergeArrays(totalUpdateCounts, stmt.executeBatch());
+                written = copyInto(totalUpdateCounts, written, BatchInserts.executeBatch(sql, stmt, counter % batchSize));
+            }
+
+            return written == totalUpdateCounts.length ? totalUpdateCounts : Arrays.copyOf(totalUpdateCounts, written);
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    /**
+     * Executes a batch of single-row INSERTs, optionally rewriting them into multi-row INSERTs.
+     *
+     * When maxParameters is positive and sql has the form {@code INSERT INTO t (...) VALUES (?, ...)},
+     * each executed statement carries as many rows as fit within maxParameters bind parameters
+     * ({@code VALUES (?, ?), (?, ?), ...}). Drivers that send every addBatch entry as its own
+     * round trip then need far fewer of them. Rewritten statements are still batched, so about
+     * batchSize rows go to the database per executeBatch call. A row's update count is 1 when
+     * its statement reports one row per input row, 0 when it reports none, and
+     * Statement.SUCCESS_NO_INFO otherwise. Statements that don't match the pattern, for example
+     * INSERT ... SELECT, run through {@link #executeInBatch(Connection, String, List, int)} unchanged.
+     *
+     * @param conn          The database connection.
+     * @param sql           The single-row INSERT statement.
+     * @param batchParams   A list of parameter maps for each row.
+     * @param batchSize     The approximate number of rows to include in each batch execution.
+     * @param maxParameters The bind parameter limit per statement, or 0 to disable rewriting.
+     * @return The update counts for all rows, in input order.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static int[] executeInBatch(Connection conn, String sql, List<Map<Integer, SqlParameter>> batchParams, int batchSize, int maxParameters) throws SQLException {
+        Matcher matcher = SINGLE_ROW_INSERT.matcher(sql);
+        if (maxParameters <= 0 || !matcher.matches()) {
+            return executeInBatch(conn, sql, batchParams, batchSize);
+        }
+        String head = matcher.group(1);
+        String tuple = matcher.group(2);
+        String tail = matcher.group(3);
+        int parametersPerRow = countPlaceholders(tuple);
+        int rowsPerStatement = parametersPerRow == 0 ? 1 : maxParameters / parametersPerRow;
+        if (rowsPerStatement <= 1 || countPlaceholders(tail) > 0) {
+            return executeInBatch(conn, sql, batchParams, batchSize);
+        }
+
+        int rowCount = batchParams.size();
+        int fullStatements = rowCount / rowsPerStatement;
+        int remainder = rowCount % rowsPerStatement;
+        int statementsPerBatch = Math.max(1, batchSize / rowsPerStatement);
+        int[] updateCounts = new int[rowCount];
+        try {
+            if (fullStatements > 0) {
+                try (PreparedStatement stmt = conn.prepareStatement(multiRowSQL(head, tuple, tail, rowsPerStatement))) {
+                    int row = 0;
+                    int firstPendingRow = 0;
+                    int pendingStatements = 0;
+                    for (int statement = 0; statement < fullStatements; statement++) {
+                        for (int i = 0; i < rowsPerStatement; i++, row++) {
+                            setParameters(stmt, batchParams.get(row), i * parametersPerRow);
+                        }
+                        stmt.addBatch();
+
+                        if (++pendingStatements == statementsPerBatch || statement == fullStatements - 1) {
+                            int[] counts = BatchInserts.executeBatch(sql, stmt, row - firstPendingRow);
+                            spreadUpdateCounts(counts, rowsPerStatement, updateCounts, firstPendingRow);
+                            firstPendingRow = row;
+                            pendingStatements = 0;
+                        }
+                    }
+                }
+            }
+
+            // The rows left over go into one shorter statement
+            if (remainder > 0) {
+                int firstRow = fullStatements * rowsPerStatement;
+                try (PreparedStatement stmt = conn.prepareStatement(multiRowSQL(head, tuple, tail, remainder))) {
+                    for (int i = 0; i < remainder; i++) {
+                        setParameters(stmt, batchParams.get(firstRow + i), i * parametersPerRow);
+                    }
+                    stmt.addBatch();
+                    spreadUpdateCounts(BatchInserts.executeBatch(sql, stmt, remainder), remainder, updateCounts, firstRow);
+                }
+            }
+            return updateCounts;
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    /**
+     * Builds an INSERT whose VALUES clause repeats the row tuple the given number of times.
+     *
+     * @param head  The statement up to and including VALUES.
+     * @param tuple The parenthesized row tuple.
+     * @param tail  Whatever followed the tuple, such as an ON CONFLICT clause.
+     * @param rows  The number of row tuples.
+     * @return The multi-row INSERT statement.
+     */
+    private static String multiRowSQL(String head, String tuple, String tail, int rows) {
+        StringBuilder sql = new StringBuilder(head.length() + (tuple.length() + 2) * rows + tail.length());
+        sql.append(head);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(tuple);
+        }
+        return sql.append(tail).toString();
+    }
+
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
             }
+        }
+        return count;
+    }
 
-            return totalUpdateCounts;
+    /**
+     * Maps the update count of each multi-row statement back onto its input rows.
+     *
+     * @param counts           The update counts of the executed statements.
+     * @param rowsPerStatement The number of input rows in each statement.
+     * @param target           The per-row update counts.
+     * @param offset           The input row of the first statement's first row.
+     */
+    private static void spreadUpdateCounts(int[] counts, int rowsPerStatement, int[] target, int offset) {
+        for (int count : counts) {
+            int perRow = count == rowsPerStatement ? 1 : count == 0 ? 0 : Statement.SUCCESS_NO_INFO;
+            int end = Math.min(offset + rowsPerStatement, target.length);
+            Arrays.fill(target, offset, end, perRow);
+            offset = end;
         }
     }
 
     /**
-     * Merges two integer arrays.
+     * Executes a batch statement over a stream of parameter rows without materializing them.
      *
-     * @param first  The first array.
-     * @param second The second array.
-     * @return The merged array.
+     * @see #executeInBatch(Connection, String, Iterator, int, int, boolean)
      */
-    private static int[] mergeArrays(int[] first, int[] second) {
-        int[] merged = new int[first.length + second.length];
-        System.arraycopy(first, 0, merged, 0, first.length);
-        System.arraycopy(second, 0, merged, first.length, second.length);
-        return merged;
+    public static BatchResult executeInBatch(Connection conn, String sql, Stream<? extends Map<Integer, SqlParameter>> rows, int batchSize, int commitEveryBatches, boolean collectUpdateCounts) throws SQLException {
+        return executeInBatch(conn, sql, rows.iterator(), batchSize, commitEveryBatches, collectUpdateCounts);
+    }
+
+    /**
+     * Executes a batch statement over an iterator of parameter rows. Only the current batch
+     * is held in memory, and update counts go into a growable buffer or, when
+     * collectUpdateCounts is false, into summary totals only.
+     *
+     * When commitEveryBatches is positive, auto-commit is disabled for the duration of the
+     * call and the transaction is committed after every commitEveryBatches batches and at the end.
+     *
+     * If a batch fails with a BatchUpdateException, only that batch is replayed row by row and
+     * rows that still fail are recorded in the result instead of aborting the load. The batch is
+     * first rolled back to a savepoint taken before it, and each replayed row gets its own
+     * savepoint. In auto-commit mode a failed batch may have been applied in part, in full or not
+     * at all (PostgreSQL runs a whole batch as one implicit transaction), so auto-commit is
+     * switched off for the call and each batch is committed on its own, giving it a savepoint to
+     * roll back to. On a driver without savepoints a failed batch cannot be undone and is not
+     * replayed: the BatchUpdateException is rethrown, after rolling back when commitEveryBatches
+     * is positive.
+     *
+     * @param conn                The database connection.
+     * @param sql                 The SQL statement to execute in batch.
+     * @param rows                The parameter rows, consumed once.
+     * @param batchSize           The number of statements to include in each batch execution.
+     * @param commitEveryBatches  Commit after this many batches, or 0 to leave transactions to the
+     *                            caller; in auto-commit mode every batch is committed.
+     * @param collectUpdateCounts Whether to keep the update count of every row.
+     * @return The update counts or summary totals of the executed batches.
+     * @throws SQLException If a database access error occurs, or if a batch fails on a driver
+     *                      without savepoints.
+     */
+    public static BatchResult executeInBatch(Connection conn, String sql, Iterator<? extends Map<Integer, SqlParameter>> rows, int batchSize, int commitEveryBatches, boolean collectUpdateCounts) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        boolean useSavepoints = conn.getMetaData().supportsSavepoints();
+        // An auto-commit batch cannot be rolled back to a savepoint, so it becomes a transaction of its own
+        int commitEvery = commitEveryBatches <= 0 && autoCommit && useSavepoints ? 1 : commitEveryBatches;
+        boolean manageTransaction = commitEvery > 0;
+        if (manageTransaction && autoCommit) {
+            conn.setAutoCommit(false);
+        }
+
+        BatchResult result = new BatchResult(collectUpdateCounts);
+        List<Map<Integer, SqlParameter>> chunk = new ArrayList<>(Math.min(batchSize, 10_000));
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            while (rows.hasNext()) {
+                Map<Integer, SqlParameter> parameters = rows.next();
+                setParameters(stmt, parameters);
+                stmt.addBatch();
+                chunk.add(parameters);
+
+                if (chunk.size() == batchSize) {
+                    executeChunk(conn, sql, stmt, chunk, useSavepoints, result);
+                    chunk.clear();
+
+                    if (manageTransaction && result.getBatchesExecuted() % commitEvery == 0) {
+                        conn.commit();
+                        result.committed();
+                    }
+                }
+            }
+
+            // Execute remaining batches
+            if (!chunk.isEmpty()) {
+                executeChunk(conn, sql, stmt, chunk, useSavepoints, result);
+            }
+            if (manageTransaction) {
+                conn.commit();
+                result.committed();
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            if (manageTransaction) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+            }
+            throw e;
+        } finally {
+            if (manageTransaction) {
+                // Committed or rolled back above
+                QueryResultCache.invalidateWritesOf(sql);
+            } else {
+                QueryResultCache.invalidateWritesOf(conn, sql);
+            }
+            if (manageTransaction && autoCommit) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Executes the pending batch and, if it fails, rolls it back to a savepoint and replays its
+     * rows one at a time.
+     *
+     * @param conn          The database connection, not in auto-commit mode when useSavepoints is true.
+     * @param sql           The SQL statement of the batch.
+     * @param stmt          The statement holding the pending batch.
+     * @param chunk         The parameter rows of the pending batch.
+     * @param useSavepoints Whether the driver supports savepoints; without them a failed batch is rethrown.
+     * @param result        The result to record update counts and failures in.
+     * @throws SQLException If a database access error other than a batch failure occurs, or the
+     *                      batch fails and useSavepoints is false.
+     */
+    private static void executeChunk(Connection conn, String sql, PreparedStatement stmt, List<Map<Integer, SqlParameter>> chunk, boolean useSavepoints, BatchResult result) throws SQLException {
+        Savepoint savepoint = useSavepoints ? conn.setSavepoint() : null;
+        try {
+            int[] counts = BatchInserts.executeBatch(sql, stmt, chunk.size());
+            result.batchExecuted();
+            result.addUpdateCounts(counts, counts.length);
+            releaseQuietly(conn, savepoint);
+            return;
+        } catch (BatchUpdateException e) {
+            if (savepoint == null) {
+                // Which rows the driver applied is unknown, so replaying could duplicate or lose rows
+                throw e;
+            }
+            result.batchExecuted();
+            stmt.clearBatch();
+            // Undo the partially applied batch and replay all of it
+            conn.rollback(savepoint);
+        }
+
+        for (Map<Integer, SqlParameter> parameters : chunk) {
+            Savepoint rowSavepoint = conn.setSavepoint();
+            try {
+                setParameters(stmt, parameters);
+                result.addUpdateCount(stmt.executeUpdate());
+                releaseQuietly(conn, rowSavepoint);
+            } catch (SQLException e) {
+                JdbcMetrics.recordError(sql);
+                conn.rollback(rowSavepoint);
+                result.addFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Releases a savepoint, ignoring drivers that do not support explicit release.
+     *
+     * @param conn      The database connection.
+     * @param savepoint The savepoint to release, or null.
+     */
+    private static void releaseQuietly(Connection conn, Savepoint savepoint) {
+        if (savepoint == null) {
+            return;
+        }
+        try {
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // Savepoints are released at commit anyway
+        }
+    }
+
+    /**
+     * Executes a batch of SQL statements whose rows are bound through a binder compiled for the SQL shape.
+     *
+     * @param conn        The database connection.
+     * @param sql         The SQL statement to execute in batch.
+     * @param binder      The binder compiled for the parameter types of the statement.
+     * @param batchParams The parameter values for each row.
+     * @param batchSize   The number of statements to include in each batch execution.
+     * @return The update counts for all rows, in input order.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static int[] executeInBatch(Connection conn, String sql, SqlBinder binder, List<SqlParameters> batchParams, int batchSize) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int[] totalUpdateCounts = new int[batchParams.size()];
+            int written = 0;
+            int counter = 0;
+
+            for (SqlParameters parameters : batchParams) {
+                binder.bind(stmt, parameters);
+                stmt.addBatch();
+                counter++;
+
+                if (counter % batchSize == 0) {
+                    written = copyInto(totalUpdateCounts, written, BatchInserts.executeBatch(sql, stmt, batchSize));
+                }
+            }
+
+            // Execute remaining batches
+            if (counter % batchSize != 0) {
+                written = copyInto(totalUpdateCounts, written, BatchInserts.executeBatch(sql, stmt, counter % batchSize));
+            }
+
+            return written == totalUpdateCounts.length ? totalUpdateCounts : Arrays.copyOf(totalUpdateCounts, written);
+        } finally {
+            QueryResultCache.invalidateWritesOf(conn, sql);
+        }
+    }
+
+    /**
+     * Copies a batch's update counts into the result array at the given offset.
+     *
+     * @param target The result array.
+     * @param offset The position of the first count of this batch.
+     * @param counts The update counts of this batch.
+     * @return The offset following the copied counts.
+     */
+    private static int copyInto(int[] target, int offset, int[] counts) {
+        System.arraycopy(counts, 0, target, offset, Math.min(counts.length, target.length - offset));
+        return offset + counts.length;
     }
 
     /**
@@ -60,8 +406,20 @@ public class JDBCUtil {
      * @throws SQLException If a database access error occurs.
      */
     private static void setParameters(PreparedStatement stmt, Map<Integer, SqlParameter> parameters) throws SQLException {
+        setParameters(stmt, parameters, 0);
+    }
+
+    /**
+     * Sets parameters on a PreparedStatement, shifting every index by offset.
+     *
+     * @param stmt       The PreparedStatement to set parameters for.
+     * @param parameters The map of parameters to set.
+     * @param offset     The number of parameters of the statement that precede this row.
+     * @throws SQLException If a database access error occurs.
+     */
+    private static void setParameters(PreparedStatement stmt, Map<Integer, SqlParameter> parameters, int offset) throws SQLException {
         for (Map.Entry<Integer, SqlParameter> entry : parameters.entrySet()) {
-            int index = entry.getKey();
+            int index = entry.getKey() + offset;
             SqlParameter parameter = entry.getValue();
 
             switch (parameter.getType()) {
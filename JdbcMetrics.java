@@ -0,0 +1,395 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.management.ObjectName;
+
+import jdk.jfr.EventType;
+
+/**
+ * Low-overhead statement metrics for the JDBC and CSV utilities.
+ *
+ * Per normalized SQL (literals replaced by '?', whitespace collapsed) it keeps prepare,
+ * execute and fetch latency histograms, row counts, batch sizes and error counts. The hot
+ * path costs two System.nanoTime() calls per phase, a map lookup on the SQL string and a few
+ * uncontended atomic adds; SQL normalization runs once per distinct statement text.
+ * Both maps are bounded: statement texts first seen after 10,000 distinct texts, and
+ * normalized statements beyond 1,000, are counted together under {@value #OTHER_STATEMENTS}.
+ *
+ * Metrics are readable through {@link #snapshot()}, over JMX as {@value #OBJECT_NAME}, and
+ * every phase is emitted as a {@code jdbcutil.Statement} JFR event when a recording enables it.
+ * Row counts are recorded for updates, batches, streams, CSV exports and imports, and for
+ * query handlers that return a Collection.
+ */
+public final class JdbcMetrics {
+
+    public static final String OBJECT_NAME = "jdbcutil:type=JdbcMetrics";
+
+    /**
+     * The SQL of the entry counting statements first seen after the metrics reached their size limits.
+     */
+    public static final String OTHER_STATEMENTS = "<other statements>";
+
+    public enum Phase { PREPARE, EXECUTE, FETCH }
+
+    private static final Logger LOGGER = Logger.getLogger("JdbcMetrics");
+    private static final int MAX_RAW_STATEMENTS = 10_000;
+    private static final int MAX_NORMALIZED_STATEMENTS = 1_000;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final EventType EVENT_TYPE = EventType.getEventType(JdbcStatementEvent.class);
+
+    private static final Map<String, StatementStats> BY_SQL = new ConcurrentHashMap<>();
+    private static final Map<String, StatementStats> BY_NORMALIZED_SQL = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = true;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(), new ObjectName(OBJECT_NAME));
+        } catch (Exception | LinkageError e) {
+            LOGGER.log(Level.FINE, "JdbcMetrics MXBean not registered", e);
+        }
+    }
+
+    private JdbcMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        JdbcMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the start time of a phase, or 0 when metrics are disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of a phase that began at start and returns the current time,
+     * so consecutive phases can be chained.
+     *
+     * @param sql   The SQL text of the statement
+     * @param phase The phase that just ended
+     * @param start The value returned by {@link #start()} or the previous record call
+     * @return The current System.nanoTime(), or 0 when metrics are disabled
+     */
+    public static long record(String sql, Phase phase, long start) {
+        if (!enabled || start == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        StatementStats stats = stats(sql);
+        stats.latency[phase.ordinal()].record(elapsed);
+        if (phase == Phase.EXECUTE) {
+            stats.executions.increment();
+        }
+        if (EVENT_TYPE.isEnabled()) {
+            JdbcStatementEvent event = new JdbcStatementEvent();
+            event.sql = stats.sql;
+            event.phase = phase.name();
+            event.elapsed = elapsed;
+            event.commit();
+        }
+        return now;
+    }
+
+    public static void recordRows(String sql, long rows) {
+        if (enabled) {
+            stats(sql).rows.add(rows);
+        }
+    }
+
+    public static void recordBatch(String sql, int batchSize) {
+        if (enabled) {
+            StatementStats stats = stats(sql);
+            stats.batches.increment();
+            stats.batchRows.add(batchSize);
+            stats.maxBatchSize.accumulateAndGet(batchSize, Math::max);
+        }
+    }
+
+    public static void recordError(String sql) {
+        if (enabled) {
+            stats(sql).errors.increment();
+        }
+    }
+
+    /**
+     * Returns a point-in-time copy of the metrics of every statement seen so far.
+     */
+    public static List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> snapshots = new ArrayList<>(BY_NORMALIZED_SQL.size());
+        for (StatementStats stats : BY_NORMALIZED_SQL.values()) {
+            snapshots.add(new StatementSnapshot(stats));
+        }
+        return snapshots;
+    }
+
+    public static void reset() {
+        BY_SQL.clear();
+        BY_NORMALIZED_SQL.clear();
+    }
+
+    /**
+     * Replaces literals with '?', collapses IN lists and whitespace, so statements differing
+     * only in inlined values share one entry.
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private static StatementStats stats(String sql) {
+        StatementStats stats = BY_SQL.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        if (BY_SQL.size() >= MAX_RAW_STATEMENTS) {
+            // Usually inlined literals; normalizing every new text would put four regex passes on the hot path
+            return otherStatements();
+        }
+        String normalized = normalize(sql);
+        stats = BY_NORMALIZED_SQL.get(normalized);
+        if (stats == null) {
+            // Statements differing in identifiers, e.g. per-tenant table names, do not normalize together
+            stats = BY_NORMALIZED_SQL.size() < MAX_NORMALIZED_STATEMENTS
+                    ? BY_NORMALIZED_SQL.computeIfAbsent(normalized, StatementStats::new)
+                    : otherStatements();
+        }
+        BY_SQL.put(sql, stats);
+        return stats;
+    }
+
+    private static StatementStats otherStatements() {
+        return BY_NORMALIZED_SQL.computeIfAbsent(OTHER_STATEMENTS, StatementStats::new);
+    }
+
+    private static final class StatementStats {
+        private final String sql;
+        private final Histogram[] latency = { new Histogram(), new Histogram(), new Histogram() };
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder batchRows = new LongAdder();
+        private final AtomicLong maxBatchSize = new AtomicLong();
+        private final LongAdder errors = new LongAdder();
+
+        private StatementStats(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * A lock-free latency histogram with power-of-two nanosecond buckets.
+     * Percentiles are reported as the upper bound of their bucket, so within a factor of two.
+     */
+    static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 1);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value));
+            count.increment();
+            totalNanos.add(value);
+            if (value > maxNanos.get()) {
+                maxNanos.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        double meanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1000.0 / n;
+        }
+
+        double maxMicros() {
+            return maxNanos.get() / 1000.0;
+        }
+
+        double percentileMicros(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * n);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1), maxNanos.get()) / 1000.0;
+                }
+            }
+            return maxMicros();
+        }
+    }
+
+    /**
+     * Metrics of one normalized statement; latencies are in microseconds.
+     */
+    public static final class StatementSnapshot {
+        private final String sql;
+        private final long executions;
+        private final long rows;
+        private final long batches;
+        private final long batchRows;
+        private final long maxBatchSize;
+        private final long errors;
+        private final double prepareMeanMicros;
+        private final double executeMeanMicros;
+        private final double executeP50Micros;
+        private final double executeP99Micros;
+        private final double executeMaxMicros;
+        private final double fetchMeanMicros;
+        private final double fetchP99Micros;
+
+        private StatementSnapshot(StatementStats stats) {
+            Histogram prepare = stats.latency[Phase.PREPARE.ordinal()];
+            Histogram execute = stats.latency[Phase.EXECUTE.ordinal()];
+            Histogram fetch = stats.latency[Phase.FETCH.ordinal()];
+            this.sql = stats.sql;
+            this.executions = stats.executions.sum();
+            this.rows = stats.rows.sum();
+            this.batches = stats.batches.sum();
+            this.batchRows = stats.batchRows.sum();
+            this.maxBatchSize = stats.maxBatchSize.get();
+            this.errors = stats.errors.sum();
+            this.prepareMeanMicros = prepare.meanMicros();
+            this.executeMeanMicros = execute.meanMicros();
+            this.executeP50Micros = execute.percentileMicros(50);
+            this.executeP99Micros = execute.percentileMicros(99);
+            this.executeMaxMicros = execute.maxMicros();
+            this.fetchMeanMicros = fetch.meanMicros();
+            this.fetchP99Micros = fetch.percentileMicros(99);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public double getAverageBatchSize() {
+            return batches == 0 ? 0 : (double) batchRows / batches;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getPrepareMeanMicros() {
+            return prepareMeanMicros;
+        }
+
+        public double getExecuteMeanMicros() {
+            return executeMeanMicros;
+        }
+
+        public double getExecuteP50Micros() {
+            return executeP50Micros;
+        }
+
+        public double getExecuteP99Micros() {
+            return executeP99Micros;
+        }
+
+        public double getExecuteMaxMicros() {
+            return executeMaxMicros;
+        }
+
+        public double getFetchMeanMicros() {
+            return fetchMeanMicros;
+        }
+
+        public double getFetchP99Micros() {
+            return fetchP99Micros;
+        }
+
+        @Override
+        public String toString() {
+            return "StatementSnapshot{" +
+                   "sql='" + sql + '\'' +
+                   ", executions=" + executions +
+                   ", rows=" + rows +
+                   ", batches=" + batches +
+                   ", errors=" + errors +
+                   ", executeMeanMicros=" + String.format("%.1f", executeMeanMicros) +
+                   ", executeP99Micros=" + String.format("%.1f", executeP99Micros) +
+                   '}';
+        }
+    }
+
+    private static final class MXBean implements JdbcMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return JdbcMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            JdbcMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public long getTotalExecutions() {
+            return BY_NORMALIZED_SQL.values().stream().mapToLong(s -> s.executions.sum()).sum();
+        }
+
+        @Override
+        public long getTotalErrors() {
+            return BY_NORMALIZED_SQL.values().stream().mapToLong(s -> s.errors.sum()).sum();
+        }
+
+        @Override
+        public int getStatementCount() {
+            return BY_NORMALIZED_SQL.size();
+        }
+
+        @Override
+        public List<StatementSnapshot> getStatements() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            JdbcMetrics.reset();
+        }
+    }
+}
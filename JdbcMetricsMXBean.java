@@ -0,0 +1,21 @@
+import java.util.List;
+
+/**
+ * JMX view of {@link JdbcMetrics}, registered as {@value JdbcMetrics#OBJECT_NAME}.
+ */
+public interface JdbcMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getTotalExecutions();
+
+    long getTotalErrors();
+
+    int getStatementCount();
+
+    List<JdbcMetrics.StatementSnapshot> getStatements();
+
+    void reset();
+}
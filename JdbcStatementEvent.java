@@ -0,0 +1,29 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted by {@link JdbcMetrics} for every recorded statement phase.
+ * Disabled unless a recording enables {@code jdbcutil.Statement}.
+ */
+@Name("jdbcutil.Statement")
+@Label("JDBC Statement Phase")
+@Category({"JDBCUtil"})
+@Description("Latency of one prepare, execute or fetch phase of a JDBC statement")
+@StackTrace(false)
+class JdbcStatementEvent extends jdk.jfr.Event {
+
+    @Label("SQL")
+    @Description("Normalized SQL text")
+    String sql;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
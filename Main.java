@@ -1,6 +1,5 @@
 import java.sql.Connection;
 import java.sql.Types;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,19 +11,8 @@ public class Main {
         parameters.put(1, new SqlParameter(Types.BOOLEAN, true)); // Parameter index: 1
 
         try (Connection conn = JDBCUtil.getConnection()) {
-            // Using ResultSetHandler to map each row to a User object
-            List<User> users = JDBCUtil.executeQuery(conn, sql, parameters, resultSet -> {
-                List<User> result = new ArrayList<>();
-                while (resultSet.next()) {
-                    User user = new User(
-                        resultSet.getInt("id"),
-                        resultSet.getString("name"),
-                        resultSet.getString("email")
-                    );
-                    result.add(user);
-                }
-                return result;
-            });
+            // Mapping each row to a User object through its (id, name, email) constructor
+            List<User> users = JDBCUtil.executeQuery(conn, sql, parameters, RowMappers.listOf(User.class));
 
             // Output the processed result
             users.forEach(System.out::println);
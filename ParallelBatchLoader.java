@@ -0,0 +1,352 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Loads parameter rows through a batch statement on several connections at once.
+ *
+ * The calling thread reads the input and feeds a bounded queue; one worker per partition
+ * takes rows from it and runs them through JDBCUtil.executeInBatch on its own connection,
+ * in its own transaction. Once every worker has drained the input, the partitions commit;
+ * if any partition failed before that, every partition rolls back instead. A single row that
+ * fails, e.g. on a constraint, fails its partition and so the whole load: rows are spread over
+ * the partitions as they are taken from the queue, so a failed row could not be traced back to
+ * its input position anyway.
+ *
+ * The commits are not atomic: each partition commits its own transaction once all have executed,
+ * so a failure while committing one partition can leave partitions that committed before it in place.
+ *
+ * Every partition must run at the same time, since each waits for the others before committing.
+ * Workers run on the given ExecutorService, which must be able to start all partitions at once;
+ * a ThreadPoolExecutor with fewer threads is rejected, and a load whose partitions have not all
+ * started within the start timeout fails. Without an executor the virtual-thread executor of
+ * {@link AsyncJDBCUtil} is used, falling back to cached platform threads before Java 21.
+ */
+public final class ParallelBatchLoader {
+
+    private static final Map<Integer, SqlParameter> END_OF_INPUT = new java.util.HashMap<>();
+    private static final long POLL_MILLIS = 100;
+    private static final long DEFAULT_START_TIMEOUT_MILLIS = 30_000;
+
+    private final ConnectionFactory connections;
+    private final int partitions;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final long startTimeoutMillis;
+
+    public ParallelBatchLoader(ConnectionFactory connections, int partitions, int batchSize) {
+        this(connections, partitions, batchSize, null);
+    }
+
+    public ParallelBatchLoader(ConnectionFactory connections, int partitions, int batchSize, ExecutorService executor) {
+        this(connections, partitions, batchSize, executor, DEFAULT_START_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param startTimeoutMillis How long to wait for every partition to start before failing the load.
+     */
+    public ParallelBatchLoader(ConnectionFactory connections, int partitions, int batchSize, ExecutorService executor, long startTimeoutMillis) {
+        if (partitions < 1 || batchSize < 1 || startTimeoutMillis < 1) {
+            throw new IllegalArgumentException("partitions, batchSize and startTimeoutMillis must be positive");
+        }
+        if (executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).getMaximumPoolSize() < partitions) {
+            throw new IllegalArgumentException("The executor runs at most " + ((ThreadPoolExecutor) executor).getMaximumPoolSize()
+                    + " tasks at once, but all " + partitions + " partitions must run together");
+        }
+        this.connections = connections;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        this.executor = executor;
+        this.startTimeoutMillis = startTimeoutMillis;
+    }
+
+    /**
+     * Loads a stream of parameter rows.
+     *
+     * @see #load(String, Iterator)
+     */
+    public Result load(String sql, Stream<? extends Map<Integer, SqlParameter>> rows) throws SQLException {
+        return load(sql, rows.iterator());
+    }
+
+    /**
+     * Loads the parameter rows through the SQL statement, spread across the partitions.
+     *
+     * @param sql  The SQL statement to execute in batch.
+     * @param rows The parameter rows, consumed once by the calling thread.
+     * @return The combined and per-partition results; every partition has committed.
+     * @throws SQLException If any row or partition failed. Failures before all partitions had executed
+     *                      roll back everything; a failed commit leaves earlier commits in place.
+     */
+    public Result load(String sql, Iterator<? extends Map<Integer, SqlParameter>> rows) throws SQLException {
+        BlockingQueue<Map<Integer, SqlParameter>> queue = new ArrayBlockingQueue<>(batchSize * partitions);
+        LoadState state = new LoadState(partitions);
+        ExecutorService workers = executor != null ? executor : AsyncJDBCUtil.defaultExecutor();
+
+        List<Future<BatchResult>> futures = new ArrayList<>(partitions);
+        try {
+            for (int i = 0; i < partitions; i++) {
+                AtomicBoolean claimed = state.claimed[i];
+                futures.add(workers.submit(() -> claimed.compareAndSet(false, true) ? runPartition(sql, queue, state) : null));
+            }
+            awaitStarted(state);
+            produce(rows, queue, state);
+            return collect(futures, state);
+        } finally {
+            if (executor == null) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Fails the load when the executor cannot start every partition in time; the partitions that
+     * did start would otherwise wait for the others forever.
+     */
+    private void awaitStarted(LoadState state) throws SQLException {
+        try {
+            if (!state.started.await(startTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                SQLException e = new SQLException("Only " + (partitions - state.started.getCount()) + " of " + partitions
+                        + " partitions started within " + startTimeoutMillis + " ms; the executor cannot run them all at once");
+                state.fail(e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.fail(e);
+        }
+    }
+
+    private void produce(Iterator<? extends Map<Integer, SqlParameter>> rows, BlockingQueue<Map<Integer, SqlParameter>> queue, LoadState state) throws SQLException {
+        try {
+            while (rows.hasNext()) {
+                if (!offer(queue, rows.next(), state)) {
+                    return;
+                }
+            }
+            // Workers pass the marker on to each other, so one is enough
+            offer(queue, END_OF_INPUT, state);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.fail(e);
+            throw new SQLException("Interrupted while feeding the batch loader", e);
+        } catch (RuntimeException e) {
+            state.fail(e);
+            throw e;
+        }
+    }
+
+    // Waits for queue space; gives up once any partition has failed
+    private static boolean offer(BlockingQueue<Map<Integer, SqlParameter>> queue, Map<Integer, SqlParameter> row, LoadState state) throws InterruptedException {
+        while (!queue.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (state.failed) {
+                return false;
+            }
+        }
+        return !state.failed;
+    }
+
+    private Result collect(List<Future<BatchResult>> futures, LoadState state) throws SQLException {
+        List<BatchResult> results = new ArrayList<>(futures.size());
+        SQLException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<BatchResult> future = futures.get(i);
+            if (state.failed && state.claimed[i].compareAndSet(false, true)) {
+                // Never started; claiming it keeps it from starting, so there is nothing to wait for
+                future.cancel(false);
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addFailure(failure, e);
+            } catch (ExecutionException e) {
+                failure = addFailure(failure, e.getCause());
+            }
+        }
+        if (failure == null && state.failed) {
+            // Failed before any partition ran, e.g. because they could not all start
+            failure = addFailure(null, state.getCause());
+        }
+        if (failure != null) {
+            // Report the partition that failed first rather than the ones it rolled back
+            Throwable cause = state.getCause();
+            if (cause != null && cause != failure) {
+                SQLException primary = addFailure(null, cause);
+                primary.addSuppressed(failure);
+                throw primary;
+            }
+            throw failure;
+        }
+        return new Result(results);
+    }
+
+    private static SQLException addFailure(SQLException failure, Throwable cause) {
+        if (failure == null) {
+            return cause instanceof SQLException ? (SQLException) cause : new SQLException("Parallel batch load failed", cause);
+        }
+        failure.addSuppressed(cause);
+        return failure;
+    }
+
+    private BatchResult runPartition(String sql, BlockingQueue<Map<Integer, SqlParameter>> queue, LoadState state) throws SQLException, InterruptedException {
+        state.started.countDown();
+        boolean arrived = false;
+        try (Connection conn = connections.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            boolean committed = false;
+            try {
+                BatchResult result = JDBCUtil.executeInBatch(conn, sql, new QueueIterator(queue, state), batchSize, 0, false);
+                if (result.getFailedRowCount() > 0) {
+                    // executeInBatch records failed rows and carries on; here they must roll back every partition
+                    throw new SQLException(result.getFailedRowCount() + " rows failed in one partition, so the load is rolled back",
+                            result.getFirstFailure());
+                }
+
+                // Commit only once every partition has executed its share without failing
+                arrived = true;
+                state.executed.countDown();
+                while (!state.executed.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (state.failed) {
+                        break;
+                    }
+                }
+                if (state.failed) {
+                    throw new SQLException("Rolled back because another partition failed");
+                }
+                conn.commit();
+                committed = true;
+                result.committed();
+                return result;
+            } finally {
+                if (!committed) {
+                    state.failed = true;
+                    conn.rollback();
+                }
+                QueryResultCache.transactionEnded(conn);
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | RuntimeException | InterruptedException e) {
+            state.fail(e);
+            throw e;
+        } finally {
+            if (!arrived) {
+                state.executed.countDown();
+            }
+        }
+    }
+
+    private static final class LoadState {
+        private final CountDownLatch started;
+        private final CountDownLatch executed;
+        private final AtomicBoolean[] claimed;
+        private volatile boolean failed;
+        private Throwable cause;
+
+        private LoadState(int partitions) {
+            this.started = new CountDownLatch(partitions);
+            this.executed = new CountDownLatch(partitions);
+            this.claimed = new AtomicBoolean[partitions];
+            for (int i = 0; i < partitions; i++) {
+                claimed[i] = new AtomicBoolean();
+            }
+        }
+
+        private synchronized void fail(Throwable failure) {
+            if (cause == null) {
+                cause = failure;
+            }
+            failed = true;
+        }
+
+        private synchronized Throwable getCause() {
+            return cause;
+        }
+    }
+
+    /**
+     * Feeds one worker from the shared queue until the end marker arrives or the load fails.
+     */
+    private static final class QueueIterator implements Iterator<Map<Integer, SqlParameter>> {
+        private final BlockingQueue<Map<Integer, SqlParameter>> queue;
+        private final LoadState state;
+        private Map<Integer, SqlParameter> next;
+        private boolean done;
+
+        private QueueIterator(BlockingQueue<Map<Integer, SqlParameter>> queue, LoadState state) {
+            this.queue = queue;
+            this.state = state;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                if (state.failed) {
+                    done = true;
+                    break;
+                }
+                try {
+                    Map<Integer, SqlParameter> row = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (row == END_OF_INPUT) {
+                        queue.offer(END_OF_INPUT);
+                        done = true;
+                    } else if (row != null) {
+                        next = row;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    state.failed = true;
+                    done = true;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map<Integer, SqlParameter> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<Integer, SqlParameter> row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    /**
+     * Combined and per-partition results of a parallel load.
+     */
+    public static final class Result {
+        private final List<BatchResult> partitions;
+        private final BatchResult total;
+
+        private Result(List<BatchResult> partitions) {
+            this.partitions = partitions;
+            this.total = new BatchResult(false);
+            for (BatchResult partition : partitions) {
+                total.append(partition);
+            }
+        }
+
+        public BatchResult getTotal() {
+            return total;
+        }
+
+        public List<BatchResult> getPartitions() {
+            return partitions;
+        }
+
+        @Override
+        public String toString() {
+            return "ParallelBatchLoader.Result{partitions=" + partitions.size() + ", total=" + total + '}';
+        }
+    }
+}
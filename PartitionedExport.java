@@ -0,0 +1,295 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports a query as CSV in partitions that run concurrently, each on its own connection.
+ *
+ * The base query is wrapped as {@code SELECT * FROM (base) p WHERE <predicate>} once per
+ * partition. Partitions are numeric key ranges from {@link #keyRanges} or predicates supplied
+ * by the caller. At most parallelism partitions run at once. Each writes its CSV to its own
+ * file, and the parts are either kept separately, each with its own header, or stitched into
+ * one output in partition order with a single header.
+ */
+public final class PartitionedExport {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives a callback from the worker thread as each partition finishes.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void partitionCompleted(Partition partition, long rows, int completedPartitions, int totalPartitions);
+    }
+
+    /**
+     * One slice of the exported query: an SQL predicate over the wrapped query's columns and its
+     * parameter values.
+     */
+    public static final class Partition {
+        private final int index;            // Position in the stitched output
+        private final String predicate;     // Condition on the columns of the base query
+        private final Object[] parameters;  // Values bound to the predicate's placeholders
+
+        public Partition(int index, String predicate, Object... parameters) {
+            this.index = index;
+            this.predicate = predicate;
+            this.parameters = parameters.clone();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getPredicate() {
+            return predicate;
+        }
+
+        public List<Object> getParameters() {
+            return Collections.unmodifiableList(Arrays.asList(parameters));
+        }
+
+        @Override
+        public String toString() {
+            return "Partition{" +
+                   "index=" + index +
+                   ", predicate='" + predicate + '\'' +
+                   ", parameters=" + Arrays.toString(parameters) +
+                   '}';
+        }
+    }
+
+    private final ConnectionFactory connections;
+    private final int parallelism;
+    private final int fetchSize;
+    private volatile ProgressListener progressListener;
+
+    public PartitionedExport(ConnectionFactory connections, int parallelism, int fetchSize) {
+        if (parallelism < 1 || fetchSize < 1) {
+            throw new IllegalArgumentException("parallelism and fetchSize must be positive");
+        }
+        this.connections = connections;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+    }
+
+    public PartitionedExport setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Splits the base query into count ranges of equal width over a numeric key column, using
+     * the key's current MIN and MAX. A last partition holds rows whose key is NULL, so the
+     * partitions together cover every row.
+     *
+     * @param connection The connection to read the key bounds with
+     * @param baseQuery  The query to export
+     * @param keyColumn  A numeric column of the base query
+     * @param count      The number of key ranges
+     * @return The partitions, in key order
+     * @throws SQLException if the key bounds cannot be read
+     */
+    public static List<Partition> keyRanges(Connection connection, String baseQuery, String keyColumn, int count) throws SQLException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive: " + count);
+        }
+        String sql = "SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") FROM (" + baseQuery + ") p";
+        long min;
+        long max;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            min = resultSet.getLong(1);
+            max = resultSet.getLong(2);
+            if (resultSet.wasNull()) {
+                return Collections.singletonList(new Partition(0, keyColumn + " IS NULL"));
+            }
+        }
+
+        List<Partition> partitions = new ArrayList<>(count + 1);
+        long width = Math.max(1, (long) Math.ceil(((double) max - min + 1) / count));
+        long lower = min;
+        for (int i = 0; i < count && lower <= max; i++) {
+            long upper = lower + width;
+            if (i == count - 1 || upper > max || upper < lower) {
+                partitions.add(new Partition(i, keyColumn + " >= ?", lower));
+                break;
+            }
+            partitions.add(new Partition(i, keyColumn + " >= ? AND " + keyColumn + " < ?", lower, upper));
+            lower = upper;
+        }
+        partitions.add(new Partition(partitions.size(), keyColumn + " IS NULL"));
+        return partitions;
+    }
+
+    /**
+     * Builds partitions from caller-supplied predicates without parameters, in the given order.
+     *
+     * @param predicates SQL conditions on the base query's columns; together they should cover every row exactly once
+     * @return The partitions
+     */
+    public static List<Partition> predicates(String... predicates) {
+        List<Partition> partitions = new ArrayList<>(predicates.length);
+        for (int i = 0; i < predicates.length; i++) {
+            partitions.add(new Partition(i, predicates[i]));
+        }
+        return partitions;
+    }
+
+    /**
+     * Exports every partition and stitches the parts into one CSV stream with a single header.
+     * Parts are copied as soon as they and all earlier parts are complete.
+     *
+     * @param baseQuery  The query to export
+     * @param orderBy    The column each partition is sorted by, or null for no ordering
+     * @param partitions The partitions, in output order
+     * @param out        The stream receiving the CSV data; flushed but not closed
+     * @return The number of data rows written
+     * @throws SQLException if any partition fails; the remaining partitions are cancelled
+     * @throws IOException  if a part or the output cannot be written
+     */
+    public long exportTo(String baseQuery, String orderBy, List<Partition> partitions, OutputStream out) throws SQLException, IOException {
+        List<Path> parts = new ArrayList<>(partitions.size());
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                parts.add(Files.createTempFile("csv-export-part-", ".csv"));
+            }
+            ExecutorService workers = newWorkers();
+            try {
+                List<Future<Long>> futures = submit(workers, baseQuery, orderBy, partitions, parts, true);
+                long rows = 0;
+                for (int i = 0; i < futures.size(); i++) {
+                    rows += await(futures, i);
+                    Files.copy(parts.get(i), out);
+                }
+                out.flush();
+                return rows;
+            } finally {
+                workers.shutdownNow();
+            }
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Exports every partition into its own CSV file with its own header, named
+     * {@code part-00000.csv}, {@code part-00001.csv}, ... after the partition index.
+     *
+     * @param baseQuery  The query to export
+     * @param orderBy    The column each partition is sorted by, or null for no ordering
+     * @param partitions The partitions
+     * @param directory  The existing directory the parts are written to
+     * @return The part files, in partition order
+     * @throws SQLException if any partition fails; the remaining partitions are cancelled
+     * @throws IOException  if a part cannot be written
+     */
+    public List<Path> exportToParts(String baseQuery, String orderBy, List<Partition> partitions, Path directory) throws SQLException, IOException {
+        List<Path> parts = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            parts.add(directory.resolve(String.format("part-%05d.csv", partition.getIndex())));
+        }
+        ExecutorService workers = newWorkers();
+        try {
+            List<Future<Long>> futures = submit(workers, baseQuery, orderBy, partitions, parts, false);
+            for (int i = 0; i < futures.size(); i++) {
+                await(futures, i);
+            }
+            return parts;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private ExecutorService newWorkers() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "partitioned-export-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private List<Future<Long>> submit(ExecutorService workers, String baseQuery, String orderBy, List<Partition> partitions, List<Path> parts, boolean stitched) {
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<Long>> futures = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Partition partition = partitions.get(i);
+            Path part = parts.get(i);
+            // Stitched output keeps only the first part's header
+            boolean header = !stitched || i == 0;
+            futures.add(workers.submit(() -> {
+                long rows = exportPartition(baseQuery, orderBy, partition, part, header);
+                ProgressListener listener = progressListener;
+                if (listener != null) {
+                    listener.partitionCompleted(partition, rows, completed.incrementAndGet(), partitions.size());
+                }
+                return rows;
+            }));
+        }
+        return futures;
+    }
+
+    private long exportPartition(String baseQuery, String orderBy, Partition partition, Path part, boolean header) throws SQLException, IOException {
+        String sql = "SELECT * FROM (" + baseQuery + ") p WHERE " + partition.predicate
+                + (orderBy != null ? " ORDER BY " + orderBy : "");
+        long start = JdbcMetrics.start();
+        try (Connection connection = connections.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(fetchSize);
+            for (int i = 0; i < partition.parameters.length; i++) {
+                preparedStatement.setObject(i + 1, partition.parameters[i]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery();
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), WRITE_BUFFER_SIZE)) {
+                start = JdbcMetrics.record(sql, JdbcMetrics.Phase.EXECUTE, start);
+                long rows = CSVUtil.writeResultSetToCSV(resultSet, out, header);
+                JdbcMetrics.record(sql, JdbcMetrics.Phase.FETCH, start);
+                JdbcMetrics.recordRows(sql, rows);
+                return rows;
+            }
+        } catch (SQLException e) {
+            JdbcMetrics.recordError(sql);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for one partition, cancelling every other partition if it failed.
+     */
+    private static long await(List<Future<Long>> futures, int index) throws SQLException, IOException {
+        try {
+            return futures.get(index).get();
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new SQLException("Partition " + index + " failed", cause);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for partition " + index, e);
+        }
+    }
+}
@@ -0,0 +1,536 @@
+import java.lang.reflect.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An opt-in cache of query results keyed by database URL, SQL text, parameter values and
+ * result handler instance, with a time-to-live and LRU eviction by total weight. Handlers are
+ * compared with equals, which for lambdas means identity: reuse one handler instance per query
+ * shape (RowMappers hands out one per class) or every call misses.
+ *
+ * Each entry remembers the tables its query reads (every table of FROM lists and JOIN clauses).
+ * JDBCUtil's update and batch paths and CSVUtil's imports report the tables they write,
+ * which drops every entry reading them. A result loaded while one of its tables is being
+ * written is not stored. That includes writes sitting in a transaction that has not ended yet:
+ * the tables stay marked on their connection, and are invalidated once more, when it commits or
+ * rolls back. Pooled connections report this themselves; code committing a connection of its
+ * own calls {@link #transactionEnded(Connection)}, otherwise the mark lapses after the TTL.
+ * Writes made outside these utilities are only picked up when entries expire, so the TTL
+ * bounds how stale a result can get. Queries whose tables cannot be determined are never cached.
+ *
+ * Cached results are shared between callers and must not be modified.
+ */
+public final class QueryResultCache {
+
+    /**
+     * Estimates the weight of a cached result; the default counts collection elements.
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        long weigh(Object result);
+    }
+
+    /**
+     * Loads a result on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private static final String TABLE_NAME = "[A-Za-z0-9_$.\"`\\[\\]]+";
+    // An optional alias, which must not be the keyword that ends the table list
+    private static final String ALIAS = "(?:\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|INNER|LEFT|RIGHT|FULL|OUTER|CROSS|NATURAL|ON|USING|GROUP|ORDER"
+            + "|HAVING|LIMIT|OFFSET|FETCH|UNION|INTERSECT|EXCEPT|MINUS|FOR|WINDOW|START|CONNECT|RETURNING)\\b)[A-Za-z_][A-Za-z0-9_$]*)?";
+    // Every table of a comma-separated FROM list, e.g. FROM a x, b y
+    private static final Pattern READ_TABLES = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+(" + TABLE_NAME + ALIAS + "(?:\\s*,\\s*" + TABLE_NAME + ALIAS + ")*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WRITE_TABLE = Pattern.compile(
+            "^\\s*(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|DELETE|MERGE\\s+INTO|REPLACE\\s+INTO|TRUNCATE\\s+TABLE|TRUNCATE)\\s+([A-Za-z0-9_$.\"`\\[\\]]+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final String[] NO_TABLES = new String[0];
+    private static final int MAX_PARSED_STATEMENTS = 10_000;
+
+    private static final List<QueryResultCache> INSTANCES = new CopyOnWriteArrayList<>();
+    private static final Map<String, String[]> PARSED_READS = new ConcurrentHashMap<>();
+    private static final Map<String, String[]> PARSED_WRITES = new ConcurrentHashMap<>();
+    // Tables written in transactions still open, by physical connection; weak so abandoned connections drop out
+    private static final Map<Connection, OpenWrites> OPEN_WRITES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static volatile QueryResultCache defaultCache;
+
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final Weigher weigher;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryResultCache(long maxWeight, long ttl, TimeUnit unit) {
+        this(maxWeight, ttl, unit, QueryResultCache::defaultWeight);
+    }
+
+    public QueryResultCache(long maxWeight, long ttl, TimeUnit unit, Weigher weigher) {
+        this.maxWeight = maxWeight;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.weigher = weigher;
+        INSTANCES.add(this);
+    }
+
+    /**
+     * Returns the cache used by JDBCUtil.executeCachedQuery, holding up to 100,000 weight
+     * units for 5 minutes unless {@link #setDefault(QueryResultCache)} installed another.
+     */
+    public static QueryResultCache getDefault() {
+        QueryResultCache cache = defaultCache;
+        if (cache == null) {
+            synchronized (QueryResultCache.class) {
+                if (defaultCache == null) {
+                    defaultCache = new QueryResultCache(100_000, 5, TimeUnit.MINUTES);
+                }
+                cache = defaultCache;
+            }
+        }
+        return cache;
+    }
+
+    public static synchronized void setDefault(QueryResultCache cache) {
+        QueryResultCache previous = defaultCache;
+        defaultCache = cache;
+        if (previous != null && previous != cache) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Invalidates, in every cache, the entries reading the table a DML statement writes.
+     * Statements whose target cannot be determined invalidate everything.
+     *
+     * @param sql The INSERT, UPDATE, DELETE, MERGE or TRUNCATE statement that was executed
+     */
+    public static void invalidateWritesOf(String sql) {
+        if (INSTANCES.isEmpty()) {
+            return;
+        }
+        String[] tables = parse(PARSED_WRITES, WRITE_TABLE, sql);
+        for (QueryResultCache cache : INSTANCES) {
+            if (tables.length == 0) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidateTable(tables[0]);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the entries reading the table a DML statement writes, as
+     * {@link #invalidateWritesOf(String)} does. If the connection is inside a transaction the
+     * table also stays marked as being written, so no result reading it is stored, until
+     * {@link #transactionEnded(Connection)} invalidates it again after the commit or rollback.
+     *
+     * @param conn The Connection the statement ran on
+     * @param sql  The INSERT, UPDATE, DELETE, MERGE or TRUNCATE statement that was executed
+     */
+    public static void invalidateWritesOf(Connection conn, String sql) {
+        invalidateWritesOf(sql);
+        if (INSTANCES.isEmpty()) {
+            return;
+        }
+        boolean inTransaction;
+        try {
+            inTransaction = !conn.getAutoCommit();
+        } catch (SQLException e) {
+            inTransaction = true;
+        }
+        if (inTransaction) {
+            String[] tables = parse(PARSED_WRITES, WRITE_TABLE, sql);
+            OPEN_WRITES.computeIfAbsent(ConnectionPool.physicalConnection(conn), c -> new OpenWrites()).add(tables);
+        }
+    }
+
+    /**
+     * Ends the transaction marks of a connection and invalidates, in every cache, the entries
+     * reading the tables it wrote, now that the writes are committed or rolled back.
+     *
+     * @param conn The Connection that committed or rolled back
+     */
+    public static void transactionEnded(Connection conn) {
+        OpenWrites writes = OPEN_WRITES.remove(ConnectionPool.physicalConnection(conn));
+        if (writes == null) {
+            return;
+        }
+        for (QueryResultCache cache : INSTANCES) {
+            writes.invalidate(cache);
+        }
+    }
+
+    /**
+     * Invalidates, in every cache, the entries reading the named table.
+     *
+     * @param table The table name, optionally schema-qualified
+     */
+    public static void invalidateTableEverywhere(String table) {
+        for (QueryResultCache cache : INSTANCES) {
+            cache.invalidateTable(table);
+        }
+    }
+
+    /**
+     * Returns the cached result for the query, or loads and caches it.
+     *
+     * @param conn       The Connection the query runs on; its URL is part of the key
+     * @param sql        The SQL query with placeholders
+     * @param parameters A map of parameter index to SqlParameter objects
+     * @param handler    The ResultSetHandler producing the result; the instance is part of the key
+     * @param loader     Runs the query on a miss
+     * @param <T>        The type of the result
+     * @return The cached or freshly loaded result
+     * @throws SQLException if loading fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Connection conn, String sql, Map<Integer, SqlParameter> parameters, ResultSetHandler<T> handler, Loader<T> loader) throws SQLException {
+        String[] tables = parse(PARSED_READS, READ_TABLES, sql);
+        if (tables.length == 0) {
+            misses.increment();
+            return loader.load();
+        }
+
+        Key key = new Key(conn.getMetaData().getURL(), sql, parameters, handler);
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                remove(key, entry);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        long versions = versionsOf(tables);
+        T value = loader.load();
+        put(key, tables, value, versions);
+        return value;
+    }
+
+    /**
+     * Drops every entry reading the given table.
+     */
+    public void invalidateTable(String table) {
+        String name = normalize(table);
+        tableVersions.computeIfAbsent(name, t -> new AtomicLong()).incrementAndGet();
+        synchronized (this) {
+            Set<Key> keys = keysByTable.get(name);
+            if (keys == null) {
+                return;
+            }
+            for (Key key : new ArrayList<>(keys)) {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (AtomicLong version : tableVersions.values()) {
+            version.incrementAndGet();
+        }
+        synchronized (this) {
+            invalidations.add(entries.size());
+            entries.clear();
+            keysByTable.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Empties the cache and stops it from receiving invalidations.
+     */
+    public void close() {
+        INSTANCES.remove(this);
+        invalidateAll();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached results, as estimated by the weigher.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryResultCache{" +
+               "size=" + size() +
+               ", weight=" + getWeight() + "/" + maxWeight +
+               ", hitRatio=" + String.format("%.3f", getHitRatio()) +
+               ", evictions=" + getEvictions() +
+               ", expirations=" + getExpirations() +
+               ", invalidations=" + getInvalidations() +
+               '}';
+    }
+
+    private void put(Key key, String[] tables, Object value, long versions) {
+        long entryWeight = Math.max(1, weigher.weigh(value));
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        synchronized (this) {
+            // A table was written while loading; the result may already be stale
+            if (versionsOf(tables) != versions || isBeingWritten(tables)) {
+                return;
+            }
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                remove(key, previous);
+            }
+            entries.put(key, new Entry(value, tables, entryWeight, System.nanoTime()));
+            for (String table : tables) {
+                keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+            }
+            weight += entryWeight;
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeight && eldest.hasNext()) {
+                Map.Entry<Key, Entry> victim = eldest.next();
+                eldest.remove();
+                unindex(victim.getKey(), victim.getValue());
+                evictions.increment();
+            }
+        }
+    }
+
+    // Called with the lock held
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        unindex(key, entry);
+    }
+
+    // Called with the lock held
+    private void unindex(Key key, Entry entry) {
+        weight -= entry.weight;
+        for (String table : entry.tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByTable.remove(table);
+            }
+        }
+    }
+
+    private long versionsOf(String[] tables) {
+        long sum = 0;
+        for (String table : tables) {
+            AtomicLong version = tableVersions.get(table);
+            if (version != null) {
+                sum += version.get();
+            }
+        }
+        return sum;
+    }
+
+    private boolean isBeingWritten(String[] tables) {
+        long now = System.nanoTime();
+        synchronized (OPEN_WRITES) {
+            for (OpenWrites writes : OPEN_WRITES.values()) {
+                if (now - writes.since < ttlNanos && writes.touches(tables)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String[] parse(Map<String, String[]> parsed, Pattern pattern, String sql) {
+        String[] tables = parsed.get(sql);
+        if (tables != null) {
+            return tables;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = pattern.matcher(sql);
+        while (matcher.find()) {
+            for (String item : matcher.group(1).split(",")) {
+                // Drop the alias; the name itself has no whitespace
+                names.add(normalize(item.trim().split("\\s+")[0]));
+            }
+        }
+        tables = names.isEmpty() ? NO_TABLES : names.toArray(new String[0]);
+        if (parsed.size() >= MAX_PARSED_STATEMENTS) {
+            parsed.clear();
+        }
+        parsed.put(sql, tables);
+        return tables;
+    }
+
+    // Schema qualifiers and identifier quotes are dropped, so s.t, "T" and t all match
+    private static String normalize(String table) {
+        String name = table.replaceAll("[\"`\\[\\]]", "");
+        int dot = name.lastIndexOf('.');
+        return (dot >= 0 ? name.substring(dot + 1) : name).toLowerCase(Locale.ROOT);
+    }
+
+    private static long defaultWeight(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size() + 1L;
+        } else if (result instanceof Map) {
+            return ((Map<?, ?>) result).size() + 1L;
+        } else if (result != null && result.getClass().isArray()) {
+            return Array.getLength(result) + 1L;
+        }
+        return 1;
+    }
+
+    /**
+     * The tables one connection has written since its transaction began.
+     */
+    private static final class OpenWrites {
+        private final long since = System.nanoTime();
+        private final Set<String> tables = new HashSet<>();
+        private boolean unknown;    // A statement whose target could not be determined
+
+        private synchronized void add(String[] written) {
+            if (written.length == 0) {
+                unknown = true;
+            } else {
+                tables.add(written[0]);
+            }
+        }
+
+        private synchronized boolean touches(String[] read) {
+            if (unknown) {
+                return true;
+            }
+            for (String table : read) {
+                if (tables.contains(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized void invalidate(QueryResultCache cache) {
+            if (unknown) {
+                cache.invalidateAll();
+                return;
+            }
+            for (String table : tables) {
+                cache.invalidateTable(table);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final String[] tables;
+        private final long weight;
+        private final long loadedAt;
+
+        private Entry(Object value, String[] tables, long weight, long loadedAt) {
+            this.value = value;
+            this.tables = tables;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Key {
+        private final String url;
+        private final String sql;
+        private final Object[] parameters;   // Alternating index, type and value, by index
+        private final Object handler;       // Capturing lambdas share a class, so the instance is compared
+        private final int hash;
+
+        private Key(String url, String sql, Map<Integer, SqlParameter> parameters, Object handler) {
+            this.url = url;
+            this.sql = sql;
+            this.handler = handler;
+
+            List<Integer> indexes = new ArrayList<>(parameters.keySet());
+            Collections.sort(indexes);
+            this.parameters = new Object[indexes.size() * 3];
+            int i = 0;
+            for (Integer index : indexes) {
+                SqlParameter parameter = parameters.get(index);
+                this.parameters[i++] = index;
+                this.parameters[i++] = parameter.getType();
+                this.parameters[i++] = parameter.getValue();
+            }
+            this.hash = Objects.hash(url, sql, handler) * 31 + Arrays.deepHashCode(this.parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && sql.equals(other.sql)
+                    && handler.equals(other.handler)
+                    && Objects.equals(url, other.url)
+                    && Arrays.deepEquals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,3 +1,6 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
 @FunctionalInterface
 public interface ResultSetHandler<T> {
     /**
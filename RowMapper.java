@@ -0,0 +1,14 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the current row of a ResultSet to an object.
+     *
+     * @param resultSet The ResultSet positioned on the row to map
+     * @return The mapped object
+     * @throws SQLException if a database access error occurs
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
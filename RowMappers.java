@@ -0,0 +1,470 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds RowMappers that map ResultSet rows to instances of a class.
+ *
+ * A mapper is compiled once per (class, column layout): column indexes and a typed reader
+ * per column are resolved from ResultSetMetaData, and the target is bound through
+ * MethodHandles, so mapping a row does no label lookups or reflection.
+ *
+ * If the class has a constructor with one parameter per column whose parameter names match
+ * the column labels, ignoring case and underscores, and whose parameter types can hold the
+ * column types, each column is passed to the parameter of the same name. Parameter names are
+ * known for records and for classes compiled with {@code -parameters}. Otherwise the class
+ * needs a no-arg constructor, and each column is written to the setter or field whose name
+ * matches the column label; columns without a match are skipped. A class without a no-arg
+ * constructor and without parameter names is mapped by position only if exactly one of its
+ * constructors takes one parameter per column and every parameter type fits its column.
+ */
+public final class RowMappers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    // Keyed on the Class itself, so same-named classes of different class loaders stay apart
+    private static final Map<Class<?>, Map<String, RowMapper<?>>> MAPPERS = new ConcurrentHashMap<>();
+    // One handler per class, so QueryResultCache keys built from them match across calls
+    private static final Map<Class<?>, ResultSetHandler<?>> LIST_HANDLERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ResultSetHandler<?>> FIRST_HANDLERS = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet resultSet, int column) throws SQLException;
+    }
+
+    private RowMappers() {
+    }
+
+    /**
+     * Returns a handler collecting every row of a ResultSet as an instance of the class.
+     * The same handler instance is returned for the same class.
+     *
+     * @param type The class to map rows to
+     * @param <T>  The mapped type
+     * @return A ResultSetHandler producing a List of mapped rows
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResultSetHandler<List<T>> listOf(Class<T> type) {
+        return (ResultSetHandler<List<T>>) LIST_HANDLERS.computeIfAbsent(type, RowMappers::newListHandler);
+    }
+
+    private static <T> ResultSetHandler<List<T>> newListHandler(Class<T> type) {
+        return resultSet -> {
+            RowMapper<T> mapper = forResultSet(type, resultSet.getMetaData());
+            List<T> result = new ArrayList<>();
+            while (resultSet.next()) {
+                result.add(mapper.mapRow(resultSet));
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Returns a handler mapping the first row of a ResultSet, or null if there is none.
+     * The same handler instance is returned for the same class.
+     *
+     * @param type The class to map the row to
+     * @param <T>  The mapped type
+     * @return A ResultSetHandler producing the mapped row
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ResultSetHandler<T> firstOf(Class<T> type) {
+        return (ResultSetHandler<T>) FIRST_HANDLERS.computeIfAbsent(type, RowMappers::newFirstHandler);
+    }
+
+    private static <T> ResultSetHandler<T> newFirstHandler(Class<T> type) {
+        return resultSet -> resultSet.next() ? forResultSet(type, resultSet.getMetaData()).mapRow(resultSet) : null;
+    }
+
+    /**
+     * Returns the mapper for the class and the column layout described by the metadata,
+     * compiling and caching it on first use.
+     *
+     * @param type     The class to map rows to
+     * @param metaData The metadata of the ResultSet to map
+     * @param <T>      The mapped type
+     * @return The compiled mapper
+     * @throws SQLException if the metadata cannot be read or the class cannot be mapped
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> forResultSet(Class<T> type, ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        int[] sqlTypes = new int[columnCount];
+        StringBuilder key = new StringBuilder();
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = metaData.getColumnLabel(i);
+            sqlTypes[i - 1] = metaData.getColumnType(i);
+            key.append('|').append(labels[i - 1]).append(':').append(sqlTypes[i - 1]);
+        }
+
+        Map<String, RowMapper<?>> layouts = MAPPERS.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        RowMapper<?> mapper = layouts.get(key.toString());
+        if (mapper == null) {
+            mapper = compile(type, labels, sqlTypes);
+            layouts.putIfAbsent(key.toString(), mapper);
+        }
+        return (RowMapper<T>) mapper;
+    }
+
+    private static <T> RowMapper<T> compile(Class<T> type, String[] labels, int[] sqlTypes) throws SQLException {
+        try {
+            if (labels.length > 0) {
+                for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                    int[] columns = namedColumns(constructor, labels, sqlTypes);
+                    if (columns != null) {
+                        return constructorMapper(type, constructor, columns);
+                    }
+                }
+                if (!hasNoArgConstructor(type)) {
+                    Constructor<?> constructor = positionalConstructor(type, sqlTypes);
+                    if (constructor != null) {
+                        return constructorMapper(type, constructor, positions(sqlTypes.length));
+                    }
+                }
+            }
+            return propertyMapper(type, labels);
+        } catch (NoSuchMethodException e) {
+            throw new SQLException("Cannot map rows to " + type.getName() + ": no constructor matches the columns " + Arrays.toString(labels)
+                    + " by parameter name and type, and there is no no-arg constructor", e);
+        } catch (IllegalAccessException e) {
+            throw new SQLException("Cannot map rows to " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Returns, per constructor parameter, the 1-based column whose label matches the parameter
+     * name and whose type fits the parameter, or null if the constructor does not take exactly
+     * the columns or its parameter names were not compiled in.
+     */
+    private static int[] namedColumns(Constructor<?> constructor, String[] labels, int[] sqlTypes) {
+        Parameter[] parameters = constructor.getParameters();
+        if (parameters.length != labels.length) {
+            return null;
+        }
+        int[] columns = new int[parameters.length];
+        boolean[] used = new boolean[labels.length];
+        for (int i = 0; i < parameters.length; i++) {
+            if (!parameters[i].isNamePresent()) {
+                return null;
+            }
+            String name = normalize(parameters[i].getName());
+            int column = -1;
+            for (int j = 0; j < labels.length && column < 0; j++) {
+                if (!used[j] && normalize(labels[j]).equals(name)) {
+                    column = j;
+                }
+            }
+            if (column < 0 || !accepts(parameters[i].getType(), sqlTypes[column])) {
+                return null;
+            }
+            used[column] = true;
+            columns[i] = column + 1;
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the only constructor without parameter names taking one parameter per column, in
+     * select-list order, whose parameter types all fit their columns; null if there is none or
+     * more than one.
+     */
+    private static Constructor<?> positionalConstructor(Class<?> type, int[] sqlTypes) {
+        Constructor<?> match = null;
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() != sqlTypes.length || constructor.getParameters()[0].isNamePresent()) {
+                // Named parameters that did not match the labels must not be bound by position
+                continue;
+            }
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            boolean fits = true;
+            for (int i = 0; i < parameterTypes.length && fits; i++) {
+                fits = accepts(parameterTypes[i], sqlTypes[i]);
+            }
+            if (fits) {
+                if (match != null) {
+                    return null;
+                }
+                match = constructor;
+            }
+        }
+        return match;
+    }
+
+    private static boolean hasNoArgConstructor(Class<?> type) {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] positions(int count) {
+        int[] columns = new int[count];
+        for (int i = 0; i < count; i++) {
+            columns[i] = i + 1;
+        }
+        return columns;
+    }
+
+    /**
+     * Whether a value of the SQL type can be read into the parameter type by its ColumnReader.
+     * Types not listed here are left to getObject and accepted.
+     */
+    private static boolean accepts(Class<?> type, int sqlType) {
+        if (type == String.class || type == Object.class) {
+            return true;
+        }
+        boolean numeric = isNumeric(sqlType);
+        if (type.isPrimitive() && type != boolean.class || Number.class.isAssignableFrom(type)) {
+            return numeric;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return sqlType == Types.BOOLEAN || sqlType == Types.BIT || numeric || isCharacter(sqlType);
+        }
+        if (type == java.sql.Date.class || type == LocalDate.class) {
+            return sqlType == Types.DATE || sqlType == Types.TIMESTAMP || sqlType == Types.TIMESTAMP_WITH_TIMEZONE || isCharacter(sqlType);
+        }
+        if (type == Timestamp.class || type == java.util.Date.class || type == LocalDateTime.class) {
+            return sqlType == Types.TIMESTAMP || sqlType == Types.TIMESTAMP_WITH_TIMEZONE || sqlType == Types.DATE || isCharacter(sqlType);
+        }
+        if (type == Time.class) {
+            return sqlType == Types.TIME || sqlType == Types.TIME_WITH_TIMEZONE || isCharacter(sqlType);
+        }
+        if (type == byte[].class) {
+            return sqlType == Types.BINARY || sqlType == Types.VARBINARY || sqlType == Types.LONGVARBINARY || sqlType == Types.BLOB;
+        }
+        if (type.isEnum()) {
+            return isCharacter(sqlType);
+        }
+        return true;
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isCharacter(int sqlType) {
+        switch (sqlType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Maps rows through a constructor; columns[i] is the 1-based column passed as parameter i.
+     */
+    private static <T> RowMapper<T> constructorMapper(Class<T> type, Constructor<?> constructor, int[] columns) throws IllegalAccessException {
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        int count = parameterTypes.length;
+        ColumnReader[] readers = new ColumnReader[count];
+        for (int i = 0; i < count; i++) {
+            readers[i] = readerFor(parameterTypes[i]);
+        }
+
+        makeAccessible(constructor);
+        MethodHandle handle = LOOKUP.unreflectConstructor(constructor)
+                .asSpreader(Object[].class, count)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        return resultSet -> {
+            Object[] arguments = new Object[count];
+            try {
+                // Inside the try so an unknown enum constant fails as SQLException like on the property path
+                for (int i = 0; i < count; i++) {
+                    arguments[i] = readers[i].read(resultSet, columns[i]);
+                }
+                return type.cast((Object) handle.invokeExact(arguments));
+            } catch (Throwable t) {
+                throw mappingFailure(type, t);
+            }
+        };
+    }
+
+    private static <T> RowMapper<T> propertyMapper(Class<T> type, String[] labels) throws IllegalAccessException, NoSuchMethodException {
+        Constructor<T> constructor = type.getDeclaredConstructor();
+        makeAccessible(constructor);
+        MethodHandle create = LOOKUP.unreflectConstructor(constructor)
+                .asType(MethodType.methodType(Object.class));
+
+        List<Integer> columns = new ArrayList<>();
+        List<ColumnReader> readers = new ArrayList<>();
+        List<MethodHandle> writers = new ArrayList<>();
+        for (int i = 0; i < labels.length; i++) {
+            String name = normalize(labels[i]);
+            MethodHandle writer = null;
+            Class<?> valueType = null;
+
+            Method setter = findSetter(type, name);
+            if (setter != null) {
+                makeAccessible(setter);
+                writer = LOOKUP.unreflect(setter);
+                valueType = setter.getParameterTypes()[0];
+            } else {
+                Field field = findField(type, name);
+                if (field != null) {
+                    makeAccessible(field);
+                    writer = LOOKUP.unreflectSetter(field);
+                    valueType = field.getType();
+                }
+            }
+
+            if (writer != null) {
+                columns.add(i + 1);
+                readers.add(readerFor(valueType));
+                writers.add(writer.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }
+        }
+
+        int count = columns.size();
+        int[] columnIndexes = columns.stream().mapToInt(Integer::intValue).toArray();
+        ColumnReader[] columnReaders = readers.toArray(new ColumnReader[0]);
+        MethodHandle[] columnWriters = writers.toArray(new MethodHandle[0]);
+
+        return resultSet -> {
+            try {
+                Object target = (Object) create.invokeExact();
+                for (int i = 0; i < count; i++) {
+                    Object value = columnReaders[i].read(resultSet, columnIndexes[i]);
+                    columnWriters[i].invokeExact(target, value);
+                }
+                return type.cast(target);
+            } catch (Throwable t) {
+                throw mappingFailure(type, t);
+            }
+        };
+    }
+
+    private static Method findSetter(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())
+                        && method.getName().startsWith("set") && normalize(method.getName().substring(3)).equals(name)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && normalize(field.getName()).equals(name)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static void makeAccessible(java.lang.reflect.AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+        } catch (RuntimeException e) {
+            // Fall back to the lookup's own access rights
+        }
+    }
+
+    private static SQLException mappingFailure(Class<?> type, Throwable t) {
+        if (t instanceof SQLException) {
+            return (SQLException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new SQLException("Could not map a row to " + type.getName(), t);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnReader readerFor(Class<?> type) {
+        if (type == int.class) {
+            return ResultSet::getInt;
+        } else if (type == Integer.class) {
+            return (rs, i) -> { int v = rs.getInt(i); return rs.wasNull() ? null : v; };
+        } else if (type == long.class) {
+            return ResultSet::getLong;
+        } else if (type == Long.class) {
+            return (rs, i) -> { long v = rs.getLong(i); return rs.wasNull() ? null : v; };
+        } else if (type == double.class) {
+            return ResultSet::getDouble;
+        } else if (type == Double.class) {
+            return (rs, i) -> { double v = rs.getDouble(i); return rs.wasNull() ? null : v; };
+        } else if (type == float.class) {
+            return ResultSet::getFloat;
+        } else if (type == Float.class) {
+            return (rs, i) -> { float v = rs.getFloat(i); return rs.wasNull() ? null : v; };
+        } else if (type == short.class) {
+            return ResultSet::getShort;
+        } else if (type == Short.class) {
+            return (rs, i) -> { short v = rs.getShort(i); return rs.wasNull() ? null : v; };
+        } else if (type == byte.class) {
+            return ResultSet::getByte;
+        } else if (type == Byte.class) {
+            return (rs, i) -> { byte v = rs.getByte(i); return rs.wasNull() ? null : v; };
+        } else if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        } else if (type == Boolean.class) {
+            return (rs, i) -> { boolean v = rs.getBoolean(i); return rs.wasNull() ? null : v; };
+        } else if (type == String.class) {
+            return ResultSet::getString;
+        } else if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        } else if (type == java.sql.Date.class) {
+            return ResultSet::getDate;
+        } else if (type == Timestamp.class || type == java.util.Date.class) {
+            return ResultSet::getTimestamp;
+        } else if (type == Time.class) {
+            return ResultSet::getTime;
+        } else if (type == LocalDate.class) {
+            return (rs, i) -> { java.sql.Date v = rs.getDate(i); return v == null ? null : v.toLocalDate(); };
+        } else if (type == LocalDateTime.class) {
+            return (rs, i) -> { Timestamp v = rs.getTimestamp(i); return v == null ? null : v.toLocalDateTime(); };
+        } else if (type == byte[].class) {
+            return ResultSet::getBytes;
+        } else if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return (rs, i) -> { String v = rs.getString(i); return v == null ? null : Enum.valueOf(enumType, v); };
+        }
+        return (rs, i) -> rs.getObject(i, type);
+    }
+}
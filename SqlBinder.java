@@ -0,0 +1,193 @@
+import java.math.BigDecimal;
+import java.sql.*;
+
+/**
+ * A parameter binder compiled once for a fixed list of SQL types (one SQL shape).
+ * The type dispatch happens in {@link #compile(int...)}; {@link #bind} then calls the
+ * resolved setter for each slot directly.
+ *
+ * <pre>
+ * private static final SqlBinder FIND_BY_ID = SqlBinder.compile(Types.BIGINT, Types.BOOLEAN);
+ * </pre>
+ */
+public final class SqlBinder {
+
+    @FunctionalInterface
+    private interface Setter {
+        void set(PreparedStatement pstmt, int index, SqlParameters parameters) throws SQLException;
+    }
+
+    private final int[] sqlTypes;
+    private final Setter[] setters;
+    private final Class<?>[][] valueTypes;  // What each setter can bind without loss, checked before calling it
+
+    private SqlBinder(int[] sqlTypes) {
+        this.sqlTypes = sqlTypes.clone();
+        this.setters = new Setter[sqlTypes.length];
+        this.valueTypes = new Class<?>[sqlTypes.length][];
+        for (int i = 0; i < sqlTypes.length; i++) {
+            setters[i] = setterFor(sqlTypes[i]);
+            valueTypes[i] = valueTypeFor(sqlTypes[i]);
+        }
+    }
+
+    /**
+     * Compiles a binder for statements whose parameters have the given SQL types, in order.
+     *
+     * @param sqlTypes The SQL type of each parameter (e.g., Types.INTEGER)
+     * @return The compiled binder
+     */
+    public static SqlBinder compile(int... sqlTypes) {
+        return new SqlBinder(sqlTypes);
+    }
+
+    public int getParameterCount() {
+        return sqlTypes.length;
+    }
+
+    /**
+     * Binds the parameters to the statement using the setters resolved at compile time.
+     * Every slot must be set, and its value must fit the compiled SQL type without loss: an int,
+     * or a long within int range, for INTEGER; an int or a long for BIGINT; a float for REAL, or a
+     * double that is exactly a float; a float or a double for DOUBLE and FLOAT; a String for the
+     * character types, a BigDecimal for DECIMAL, and so on. Values are never narrowed silently.
+     *
+     * @param pstmt      The PreparedStatement
+     * @param parameters The values, one per compiled SQL type
+     * @throws SQLException if a slot is unset or holds a value of the wrong type, naming its
+     *                      index, or if a database access error occurs
+     */
+    public void bind(PreparedStatement pstmt, SqlParameters parameters) throws SQLException {
+        if (parameters.size() != sqlTypes.length) {
+            throw new SQLException("Expected " + sqlTypes.length + " parameters but got " + parameters.size());
+        }
+        for (int i = 0; i < sqlTypes.length; i++) {
+            int index = i + 1;
+            if (!parameters.isSet(index)) {
+                throw new SQLException("Parameter " + index + " has not been set");
+            }
+            if (parameters.isNull(index)) {
+                pstmt.setNull(index, sqlTypes[i]);
+            } else if (parameters.holds(index, valueTypes[i])) {
+                try {
+                    setters[i].set(pstmt, index, parameters);
+                } catch (ArithmeticException e) {
+                    throw new SQLException("Parameter " + index + " value " + parameters.getObject(index) +
+                            " does not fit " + typeName(sqlTypes[i]), e);
+                }
+            } else {
+                throw new SQLException("Parameter " + index + " holds a " + parameters.getObject(index).getClass().getName() +
+                        " but is compiled as " + typeName(sqlTypes[i]) + ", which needs one of " + typeNames(valueTypes[i]));
+            }
+        }
+    }
+
+    private static Setter setterFor(int sqlType) {
+        switch (sqlType) {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return (pstmt, index, p) -> pstmt.setInt(index, p.getInt(index));
+            case Types.BIGINT:
+                return (pstmt, index, p) -> pstmt.setLong(index, p.getLong(index));
+            case Types.REAL:
+                return (pstmt, index, p) -> pstmt.setFloat(index, exactFloat(p.getDouble(index)));
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                // JDBC FLOAT is double precision
+                return (pstmt, index, p) -> pstmt.setDouble(index, p.getDouble(index));
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return (pstmt, index, p) -> pstmt.setBoolean(index, p.getBoolean(index));
+            case Types.VARCHAR:
+            case Types.CHAR:
+            case Types.LONGVARCHAR:
+                return (pstmt, index, p) -> pstmt.setString(index, (String) p.getObject(index));
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return (pstmt, index, p) -> pstmt.setBigDecimal(index, (BigDecimal) p.getObject(index));
+            case Types.DATE:
+                return (pstmt, index, p) -> pstmt.setDate(index, (Date) p.getObject(index));
+            case Types.TIMESTAMP:
+                return (pstmt, index, p) -> pstmt.setTimestamp(index, (Timestamp) p.getObject(index));
+            case Types.TIME:
+                return (pstmt, index, p) -> pstmt.setTime(index, (Time) p.getObject(index));
+            case Types.BLOB:
+                return (pstmt, index, p) -> pstmt.setBlob(index, (Blob) p.getObject(index));
+            case Types.CLOB:
+                return (pstmt, index, p) -> pstmt.setClob(index, (Clob) p.getObject(index));
+            case Types.ARRAY:
+                return (pstmt, index, p) -> pstmt.setArray(index, (Array) p.getObject(index));
+            default:
+                return (pstmt, index, p) -> pstmt.setObject(index, p.getObject(index), sqlType);
+        }
+    }
+
+    /**
+     * The types a value may have for the setter of the SQL type to bind it without loss. A long in
+     * an INTEGER slot and a double in a REAL slot are range-checked when bound.
+     */
+    private static Class<?>[] valueTypeFor(int sqlType) {
+        switch (sqlType) {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.BIGINT:
+                return new Class<?>[] { Integer.class, Long.class, Short.class, Byte.class };
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return new Class<?>[] { Float.class, Double.class };
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return new Class<?>[] { Boolean.class };
+            case Types.VARCHAR:
+            case Types.CHAR:
+            case Types.LONGVARCHAR:
+                return new Class<?>[] { String.class };
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return new Class<?>[] { BigDecimal.class };
+            case Types.DATE:
+                return new Class<?>[] { Date.class };
+            case Types.TIMESTAMP:
+                return new Class<?>[] { Timestamp.class };
+            case Types.TIME:
+                return new Class<?>[] { Time.class };
+            case Types.BLOB:
+                return new Class<?>[] { Blob.class };
+            case Types.CLOB:
+                return new Class<?>[] { Clob.class };
+            case Types.ARRAY:
+                return new Class<?>[] { Array.class };
+            default:
+                // setObject leaves the conversion to the driver
+                return new Class<?>[] { Object.class };
+        }
+    }
+
+    private static float exactFloat(double value) {
+        float narrowed = (float) value;
+        if (narrowed != value && !Double.isNaN(value)) {
+            throw new ArithmeticException("Not a float without loss: " + value);
+        }
+        return narrowed;
+    }
+
+    private static String typeNames(Class<?>[] types) {
+        StringBuilder names = new StringBuilder();
+        for (Class<?> type : types) {
+            names.append(names.length() == 0 ? "" : ", ").append(type.getName());
+        }
+        return names.toString();
+    }
+
+    private static String typeName(int sqlType) {
+        try {
+            return JDBCType.valueOf(sqlType).getName();
+        } catch (IllegalArgumentException e) {
+            // Vendor-specific type code
+            return "SQL type " + sqlType;
+        }
+    }
+}
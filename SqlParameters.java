@@ -0,0 +1,315 @@
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Arrays;
+
+/**
+ * An indexed, reusable list of PreparedStatement parameters.
+ * Numeric and boolean values are kept in primitive slots, so binding them never boxes;
+ * call {@link #clear()} to reuse the same instance for the next execution.
+ */
+public class SqlParameters {
+    static final byte UNSET = 0;
+    static final byte NULL = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte BOOLEAN = 6;
+    static final byte STRING = 7;
+    static final byte OBJECT = 8;
+
+    private byte[] kinds;           // Slot kind per parameter index - 1
+    private int[] sqlTypes;         // SQL type per parameter (e.g., Types.INTEGER)
+    private long[] primitives;      // int/long/boolean values and float/double raw bits
+    private Object[] objects;       // Reference values (String, Date, BigDecimal, ...)
+    private int size;               // Highest parameter index set
+
+    public SqlParameters() {
+        this(8);
+    }
+
+    public SqlParameters(int capacity) {
+        kinds = new byte[capacity];
+        sqlTypes = new int[capacity];
+        primitives = new long[capacity];
+        objects = new Object[capacity];
+    }
+
+    public SqlParameters setInt(int index, int value) {
+        primitives[slot(index, INT, Types.INTEGER)] = value;
+        return this;
+    }
+
+    public SqlParameters setLong(int index, long value) {
+        primitives[slot(index, LONG, Types.BIGINT)] = value;
+        return this;
+    }
+
+    public SqlParameters setFloat(int index, float value) {
+        primitives[slot(index, FLOAT, Types.REAL)] = Float.floatToRawIntBits(value);
+        return this;
+    }
+
+    public SqlParameters setDouble(int index, double value) {
+        primitives[slot(index, DOUBLE, Types.DOUBLE)] = Double.doubleToRawLongBits(value);
+        return this;
+    }
+
+    public SqlParameters setBoolean(int index, boolean value) {
+        primitives[slot(index, BOOLEAN, Types.BOOLEAN)] = value ? 1 : 0;
+        return this;
+    }
+
+    public SqlParameters setString(int index, String value) {
+        return value == null ? setNull(index, Types.VARCHAR) : setReference(index, STRING, Types.VARCHAR, value);
+    }
+
+    public SqlParameters setBigDecimal(int index, BigDecimal value) {
+        return setObject(index, value, Types.DECIMAL);
+    }
+
+    public SqlParameters setDate(int index, Date value) {
+        return setObject(index, value, Types.DATE);
+    }
+
+    public SqlParameters setTimestamp(int index, Timestamp value) {
+        return setObject(index, value, Types.TIMESTAMP);
+    }
+
+    /**
+     * Sets a reference value with an explicit SQL type; a null value binds as SQL NULL.
+     */
+    public SqlParameters setObject(int index, Object value, int sqlType) {
+        return value == null ? setNull(index, sqlType) : setReference(index, OBJECT, sqlType, value);
+    }
+
+    public SqlParameters setNull(int index, int sqlType) {
+        slot(index, NULL, sqlType);
+        return this;
+    }
+
+    /**
+     * Forgets all values so the instance can be filled again for the next execution.
+     */
+    public void clear() {
+        Arrays.fill(kinds, 0, size, UNSET);
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getType(int index) {
+        return sqlTypes[index - 1];
+    }
+
+    public boolean isNull(int index) {
+        return kinds[index - 1] == NULL;
+    }
+
+    /**
+     * Whether a value, or SQL NULL, has been set at the index since the last {@link #clear()}.
+     */
+    public boolean isSet(int index) {
+        return index >= 1 && index <= size && kinds[index - 1] != UNSET;
+    }
+
+    /**
+     * Whether the non-null value at the index is, once boxed, exactly one of the types; checked
+     * without boxing, e.g. an int slot holds an Integer but not a Number.
+     */
+    boolean holds(int index, Class<?>[] types) {
+        int i = index - 1;
+        for (Class<?> type : types) {
+            switch (kinds[i]) {
+                case INT:
+                    if (type == Integer.class) return true;
+                    break;
+                case LONG:
+                    if (type == Long.class) return true;
+                    break;
+                case FLOAT:
+                    if (type == Float.class) return true;
+                    break;
+                case DOUBLE:
+                    if (type == Double.class) return true;
+                    break;
+                case BOOLEAN:
+                    if (type == Boolean.class) return true;
+                    break;
+                case STRING:
+                case OBJECT:
+                    if (type.isInstance(objects[i])) return true;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value as an int.
+     *
+     * @throws ArithmeticException if the value is not an int without loss, e.g. a long out of int range
+     */
+    public int getInt(int index) {
+        return Math.toIntExact(getLong(index));
+    }
+
+    /**
+     * Returns the value as a long.
+     *
+     * @throws ArithmeticException if the value is not a long without loss, e.g. a double with a fraction
+     */
+    public long getLong(int index) {
+        int i = index - 1;
+        switch (kinds[i]) {
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                return primitives[i];
+            case FLOAT:
+                return exactLong(Float.intBitsToFloat((int) primitives[i]));
+            case DOUBLE:
+                return exactLong(Double.longBitsToDouble(primitives[i]));
+            default:
+                Object value = objects[i];
+                if (value instanceof BigDecimal) {
+                    return ((BigDecimal) value).longValueExact();
+                }
+                if (value instanceof Float || value instanceof Double) {
+                    return exactLong(((Number) value).doubleValue());
+                }
+                return ((Number) value).longValue();
+        }
+    }
+
+    public float getFloat(int index) {
+        return (float) getDouble(index);
+    }
+
+    public double getDouble(int index) {
+        int i = index - 1;
+        switch (kinds[i]) {
+            case FLOAT:
+                return Float.intBitsToFloat((int) primitives[i]);
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[i]);
+            case INT:
+            case LONG:
+                return primitives[i];
+            default:
+                return ((Number) objects[i]).doubleValue();
+        }
+    }
+
+    public boolean getBoolean(int index) {
+        int i = index - 1;
+        return kinds[i] == BOOLEAN ? primitives[i] != 0 : (Boolean) objects[i];
+    }
+
+    /**
+     * Returns the value as an object; primitive slots are boxed, so prefer the typed getters.
+     */
+    public Object getObject(int index) {
+        int i = index - 1;
+        switch (kinds[i]) {
+            case UNSET:
+            case NULL:
+                return null;
+            case INT:
+                return (int) primitives[i];
+            case LONG:
+                return primitives[i];
+            case FLOAT:
+                return Float.intBitsToFloat((int) primitives[i]);
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[i]);
+            case BOOLEAN:
+                return primitives[i] != 0;
+            default:
+                return objects[i];
+        }
+    }
+
+    /**
+     * Binds every parameter to the statement, dispatching on the kind of each slot.
+     *
+     * @param pstmt The PreparedStatement
+     * @throws SQLException if a database access error occurs
+     */
+    public void bind(PreparedStatement pstmt) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            int index = i + 1;
+            switch (kinds[i]) {
+                case UNSET:
+                    throw new SQLException("Parameter " + index + " has not been set");
+                case NULL:
+                    pstmt.setNull(index, sqlTypes[i]);
+                    break;
+                case INT:
+                    pstmt.setInt(index, (int) primitives[i]);
+                    break;
+                case LONG:
+                    pstmt.setLong(index, primitives[i]);
+                    break;
+                case FLOAT:
+                    pstmt.setFloat(index, Float.intBitsToFloat((int) primitives[i]));
+                    break;
+                case DOUBLE:
+                    pstmt.setDouble(index, Double.longBitsToDouble(primitives[i]));
+                    break;
+                case BOOLEAN:
+                    pstmt.setBoolean(index, primitives[i] != 0);
+                    break;
+                case STRING:
+                    pstmt.setString(index, (String) objects[i]);
+                    break;
+                default:
+                    pstmt.setObject(index, objects[i], sqlTypes[i]);
+                    break;
+            }
+        }
+    }
+
+    private static long exactLong(double value) {
+        // 2^63 itself rounds to Long.MAX_VALUE when cast, so the upper bound is exclusive
+        if (value != Math.rint(value) || value < -0x1p63 || value >= 0x1p63) {
+            throw new ArithmeticException("Not a long without loss: " + value);
+        }
+        return (long) value;
+    }
+
+    private SqlParameters setReference(int index, byte kind, int sqlType, Object value) {
+        objects[slot(index, kind, sqlType)] = value;
+        return this;
+    }
+
+    private int slot(int index, byte kind, int sqlType) {
+        if (index < 1) {
+            throw new IllegalArgumentException("Parameter index must be 1 or greater: " + index);
+        }
+        int i = index - 1;
+        if (i >= kinds.length) {
+            grow(index);
+        }
+        kinds[i] = kind;
+        sqlTypes[i] = sqlType;
+        objects[i] = null;
+        if (index > size) {
+            size = index;
+        }
+        return i;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, kinds.length * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        sqlTypes = Arrays.copyOf(sqlTypes, capacity);
+        primitives = Arrays.copyOf(primitives, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+}
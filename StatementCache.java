@@ -0,0 +1,319 @@
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, per-connection cache of PreparedStatements with LRU eviction.
+ *
+ * Statements are keyed by SQL text, result set type and concurrency, and the generated-keys
+ * flag. A statement is handed out through a {@link Lease}; closing the lease clears its
+ * parameters and returns it to the cache instead of closing it. If the same statement is
+ * requested again while it is still leased (for example from inside a ResultSetHandler),
+ * a fresh uncached statement is prepared so the two uses never share state.
+ *
+ * Caching is disabled until {@link #setDefaultMaxSize(int)} is called with a positive size.
+ * Call {@link #invalidate(Connection)} before closing a connection. The cache cannot see a
+ * caller close a raw connection, and its cached statements keep that connection reachable, so
+ * every lease also drops the caches of connections that have been closed since.
+ */
+public final class StatementCache {
+
+    private static final Map<Connection, StatementCache> CACHES = new ConcurrentHashMap<>();
+
+    private static volatile int defaultMaxSize = 0;
+
+    private final Connection connection;
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> statements;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private boolean closed;
+
+    private StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<Key, StatementCache.Entry>(16, 0.75f, true) {
+            // Qualified: inside this subclass a bare Entry names the inherited Map.Entry
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, StatementCache.Entry> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                evictions.increment();
+                eldest.getValue().discard();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Sets the per-connection cache size used for connections seen from now on; 0 disables caching.
+     */
+    public static void setDefaultMaxSize(int maxSize) {
+        defaultMaxSize = Math.max(0, maxSize);
+    }
+
+    public static int getDefaultMaxSize() {
+        return defaultMaxSize;
+    }
+
+    /**
+     * Returns the cache of a connection, creating it on first use, or null if caching is disabled.
+     */
+    public static StatementCache forConnection(Connection conn) {
+        // Pooled connections share the cache of their physical connection across borrows
+        Connection physical = ConnectionPool.physicalConnection(conn);
+        purgeClosedConnections();
+        StatementCache cache = CACHES.get(physical);
+        if (cache != null || defaultMaxSize <= 0) {
+            return cache;
+        }
+        return CACHES.computeIfAbsent(physical, c -> new StatementCache(c, defaultMaxSize));
+    }
+
+    /**
+     * Leases a forward-only, read-only statement for the SQL, cached if caching is enabled.
+     *
+     * @param conn The Connection object
+     * @param sql  The SQL statement with placeholders
+     * @return A lease that must be closed when the statement is no longer used
+     * @throws SQLException if a database access error occurs
+     */
+    public static Lease lease(Connection conn, String sql) throws SQLException {
+        return lease(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Leases a statement that returns generated keys, cached if caching is enabled.
+     */
+    public static Lease leaseWithGeneratedKeys(Connection conn, String sql) throws SQLException {
+        return lease(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    public static Lease lease(Connection conn, String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) throws SQLException {
+        StatementCache cache = forConnection(conn);
+        Key key = new Key(sql, resultSetType, resultSetConcurrency, autoGeneratedKeys);
+        if (cache == null) {
+            return new Lease(null, prepare(conn, key));
+        }
+        return cache.lease(key);
+    }
+
+    /**
+     * Closes and forgets every cached statement of the connection. Statements still leased
+     * are closed when their lease is closed.
+     */
+    public static void invalidate(Connection conn) {
+        StatementCache cache = CACHES.remove(ConnectionPool.physicalConnection(conn));
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public static long getTotalHits() {
+        return CACHES.values().stream().mapToLong(StatementCache::getHits).sum();
+    }
+
+    public static long getTotalMisses() {
+        return CACHES.values().stream().mapToLong(StatementCache::getMisses).sum();
+    }
+
+    public static long getTotalEvictions() {
+        return CACHES.values().stream().mapToLong(StatementCache::getEvictions).sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private Lease lease(Key key) throws SQLException {
+        Entry entry;
+        synchronized (this) {
+            entry = closed ? null : statements.get(key);
+            if (entry != null && !entry.leased) {
+                entry.leased = true;
+                hits.increment();
+                return new Lease(entry, entry.statement);
+            }
+        }
+
+        misses.increment();
+        PreparedStatement statement = prepare(connection, key);
+        if (entry != null) {
+            // The cached statement is busy; hand out a private one that is closed after use
+            return new Lease(null, statement);
+        }
+
+        synchronized (this) {
+            if (closed || statements.containsKey(key)) {
+                return new Lease(null, statement);
+            }
+            Entry created = new Entry(statement);
+            created.leased = true;
+            statements.put(key, created);
+            return new Lease(created, statement);
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leased = false;
+        if (entry.discarded) {
+            closeQuietly(entry.statement);
+        }
+    }
+
+    private synchronized void clear() {
+        closed = true;
+        for (Entry entry : statements.values()) {
+            entry.discard();
+        }
+        statements.clear();
+    }
+
+    private static PreparedStatement prepare(Connection conn, Key key) throws SQLException {
+        if (key.autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+            return conn.prepareStatement(key.sql, Statement.RETURN_GENERATED_KEYS);
+        }
+        return conn.prepareStatement(key.sql, key.resultSetType, key.resultSetConcurrency);
+    }
+
+    // One isClosed() per cached connection, which drivers answer from local state
+    private static void purgeClosedConnections() {
+        for (Connection conn : CACHES.keySet()) {
+            try {
+                if (conn.isClosed()) {
+                    invalidate(conn);
+                }
+            } catch (SQLException e) {
+                invalidate(conn);
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The statement is unusable either way
+        }
+    }
+
+    /**
+     * A statement checked out of the cache. Closing the lease returns a cached statement to
+     * the cache with its parameters cleared, or closes an uncached one.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private final PreparedStatement statement;
+        private final StatementCache owner;
+
+        private Lease(Entry entry, PreparedStatement statement) {
+            this.entry = entry;
+            this.statement = statement;
+            this.owner = entry == null ? null : entry.owner();
+        }
+
+        public PreparedStatement getStatement() {
+            return statement;
+        }
+
+        public boolean isCached() {
+            return entry != null;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (entry == null) {
+                statement.close();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+            } catch (SQLException e) {
+                synchronized (owner) {
+                    entry.discarded = true;
+                    owner.statements.values().remove(entry);
+                }
+            }
+            owner.release(entry);
+        }
+    }
+
+    private final class Entry {
+        private final PreparedStatement statement;
+        private boolean leased;
+        private boolean discarded;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private StatementCache owner() {
+            return StatementCache.this;
+        }
+
+        // Called with the cache lock held; a leased statement is closed by its lease
+        private void discard() {
+            discarded = true;
+            if (!leased) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int autoGeneratedKeys;
+        private final int hash;
+
+        private Key(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.hash = Objects.hash(sql, resultSetType, resultSetConcurrency, autoGeneratedKeys);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return resultSetType == other.resultSetType
+                    && resultSetConcurrency == other.resultSetConcurrency
+                    && autoGeneratedKeys == other.autoGeneratedKeys
+                    && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
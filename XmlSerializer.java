@@ -2,17 +2,45 @@ package br.com.rponte.util.xml;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.adapters.NormalizedStringAdapter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 public class XmlSerializer {
+
+    /**
+     * Idle marshallers and unmarshallers kept per class (and encoding); more are created under load
+     * and dropped when the pool is full.
+     */
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    // JAXBContext is thread-safe and costly to build, so one is shared per class
+    private static final ConcurrentMap<Class<?>, Contexts> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
 	
     private final String encoding;
 	
@@ -29,15 +57,12 @@ public class XmlSerializer {
      */
     public String toXml(Object o) {
         try {
-            JAXBContext context = JAXBContext.newInstance(o.getClass());
-            
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, false);
-            marshaller.setProperty(Marshaller.JAXB_ENCODING, this.encoding);
+            Contexts contexts = contexts(o.getClass());
+            Marshaller marshaller = contexts.borrowMarshaller(this.encoding);
             
             StringWriter writer = new StringWriter();
             marshaller.marshal(o, writer);
+            contexts.returnMarshaller(this.encoding, marshaller);
             return writer.toString();
             
         } catch(Exception e) {
@@ -50,11 +75,11 @@ public class XmlSerializer {
      */
     public <T> T fromXml(String xml, Class<T> clazz) {
         try {
-            JAXBContext context = JAXBContext.newInstance(clazz);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            unmarshaller.setAdapter(new NormalizedStringAdapter());
+            Contexts contexts = contexts(clazz);
+            Unmarshaller unmarshaller = contexts.borrowUnmarshaller();
             
             Object o = unmarshaller.unmarshal(new StringReader(xml));
+            contexts.returnUnmarshaller(unmarshaller);
             return clazz.cast(o);
         } catch(Exception e) {
             throw new IllegalStateException("Error while deserializing a XML text to Object of type " + clazz, e);
@@ -66,12 +91,12 @@ public class XmlSerializer {
      */
     public <T> T fromXml(File xml, Class<T> clazz) {
     	try {
-            JAXBContext context = JAXBContext.newInstance(clazz);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            unmarshaller.setAdapter(new NormalizedStringAdapter());
+            Contexts contexts = contexts(clazz);
+            Unmarshaller unmarshaller = contexts.borrowUnmarshaller();
             
             try (Reader reader = new InputStreamReader(new FileInputStream(xml), this.encoding);) {
             	Object o = unmarshaller.unmarshal(reader);
+            	contexts.returnUnmarshaller(unmarshaller);
             	return clazz.cast(o);
             }
             
@@ -80,4 +105,228 @@ public class XmlSerializer {
         }
     }
     
+    /**
+     * Deserializes each element with the given local name in a XML file, one at a time,
+     * so only the current element is held in memory. Close the stream to release the file
+     */
+    public <T> Stream<T> stream(File xml, String elementName, Class<T> clazz) {
+        return stream(iterate(xml, elementName, clazz));
+    }
+    
+    /**
+     * Deserializes each element with the given local name in a XML stream, one at a time.
+     * Closing the returned stream closes the input
+     */
+    public <T> Stream<T> stream(InputStream xml, String elementName, Class<T> clazz) {
+        return stream(iterate(xml, elementName, clazz));
+    }
+    
+    /**
+     * Iterates over the elements with the given local name in a XML file, deserializing one
+     * per call to next(). Close the iterator if it is not read to the end
+     */
+    public <T> ElementIterator<T> iterate(File xml, String elementName, Class<T> clazz) {
+        try {
+            return iterate(new FileInputStream(xml), elementName, clazz);
+        } catch(IOException e) {
+            throw new IllegalStateException("Error while opening a XML file to read elements " + elementName, e);
+        }
+    }
+    
+    /**
+     * Iterates over the elements with the given local name in a XML stream, deserializing one
+     * per call to next(). Closing the iterator closes the input
+     */
+    public <T> ElementIterator<T> iterate(InputStream xml, String elementName, Class<T> clazz) {
+        try {
+            Contexts contexts = contexts(clazz);
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(xml, this.encoding);
+            return new ElementIterator<>(contexts, reader, xml, elementName, clazz);
+        } catch(Exception e) {
+            try {
+                xml.close();
+            } catch(IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new IllegalStateException("Error while reading elements " + elementName + " of type " + clazz, e);
+        }
+    }
+    
+    private static <T> Stream<T> stream(ElementIterator<T> iterator) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+    
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Feed files come from outside, so no DTDs or external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+    
+    /**
+     * Builds and caches the JAXBContext of each class up front, so the first request
+     * does not pay for it
+     */
+    public static void warmUp(Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            try {
+                contexts(clazz);
+            } catch(JAXBException e) {
+                throw new IllegalStateException("Error while creating the JAXBContext of " + clazz, e);
+            }
+        }
+    }
+    
+    private static Contexts contexts(Class<?> clazz) throws JAXBException {
+        Contexts contexts = CONTEXTS.get(clazz);
+        if (contexts == null) {
+            // Two threads may both build one; the first to register wins
+            Contexts created = new Contexts(JAXBContext.newInstance(clazz));
+            contexts = CONTEXTS.putIfAbsent(clazz, created);
+            if (contexts == null) {
+                contexts = created;
+            }
+        }
+        return contexts;
+    }
+    
+    /**
+     * Walks a XML document with StAX and unmarshals each matching element on its own. Borrows one
+     * unmarshaller for its whole life and releases it, the reader and the input once exhausted or closed.
+     */
+    public static final class ElementIterator<T> implements Iterator<T>, AutoCloseable {
+        private final Contexts contexts;
+        private final XMLStreamReader reader;
+        private final InputStream input;
+        private final String elementName;
+        private final Class<T> clazz;
+        private Unmarshaller unmarshaller;
+        private T next;
+        private boolean closed;
+        
+        private ElementIterator(Contexts contexts, XMLStreamReader reader, InputStream input, String elementName, Class<T> clazz) throws JAXBException {
+            this.contexts = contexts;
+            this.reader = reader;
+            this.input = input;
+            this.elementName = elementName;
+            this.clazz = clazz;
+            this.unmarshaller = contexts.borrowUnmarshaller();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                try {
+                    if (advance()) {
+                        next = unmarshaller.unmarshal(reader, clazz).getValue();
+                    } else {
+                        close();
+                    }
+                } catch(Exception e) {
+                    // The reader may be mid-element, so neither it nor the unmarshaller can be reused
+                    unmarshaller = null;
+                    close();
+                    throw new IllegalStateException("Error while deserializing a XML element " + elementName + " to Object of type " + clazz, e);
+                }
+            }
+            return next != null;
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T o = next;
+            next = null;
+            return o;
+        }
+        
+        /**
+         * Moves to the next start tag with the element name; unmarshal leaves the reader on the event
+         * after the element it read, which may already be the next match
+         */
+        private boolean advance() throws XMLStreamException {
+            while (true) {
+                if (reader.getEventType() == XMLStreamConstants.START_ELEMENT && elementName.equals(reader.getLocalName())) {
+                    return true;
+                }
+                if (!reader.hasNext()) {
+                    return false;
+                }
+                reader.next();
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (unmarshaller != null) {
+                contexts.returnUnmarshaller(unmarshaller);
+                unmarshaller = null;
+            }
+            try {
+                reader.close();
+            } catch(XMLStreamException e) {
+                // Closing the input below is what frees the file
+            }
+            try {
+                input.close();
+            } catch(IOException e) {
+                throw new IllegalStateException("Error while closing a XML input", e);
+            }
+        }
+    }
+    
+    /**
+     * A cached JAXBContext with its idle marshallers and unmarshallers. Marshallers and unmarshallers
+     * are not thread-safe, so each call borrows one for its own use; one that failed is not returned.
+     */
+    private static final class Contexts {
+        private final JAXBContext context;
+        private final BlockingQueue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<>(POOL_SIZE);
+        private final ConcurrentMap<String, BlockingQueue<Marshaller>> marshallers = new ConcurrentHashMap<>();
+        
+        private Contexts(JAXBContext context) {
+            this.context = context;
+        }
+        
+        private Marshaller borrowMarshaller(String encoding) throws JAXBException {
+            Marshaller marshaller = marshallers(encoding).poll();
+            if (marshaller == null) {
+                marshaller = context.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, false);
+                marshaller.setProperty(Marshaller.JAXB_ENCODING, encoding);
+            }
+            return marshaller;
+        }
+        
+        private void returnMarshaller(String encoding, Marshaller marshaller) {
+            marshallers(encoding).offer(marshaller);
+        }
+        
+        private BlockingQueue<Marshaller> marshallers(String encoding) {
+            return marshallers.computeIfAbsent(encoding, e -> new ArrayBlockingQueue<>(POOL_SIZE));
+        }
+        
+        private Unmarshaller borrowUnmarshaller() throws JAXBException {
+            Unmarshaller unmarshaller = unmarshallers.poll();
+            if (unmarshaller == null) {
+                unmarshaller = context.createUnmarshaller();
+                unmarshaller.setAdapter(new NormalizedStringAdapter());
+            }
+            return unmarshaller;
+        }
+        
+        private void returnUnmarshaller(Unmarshaller unmarshaller) {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+    
 }
\ No newline at end of file
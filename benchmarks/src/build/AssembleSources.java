@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copies the utility sources of the repository root into one package so the benchmarks can be
+ * compiled against them. Run by the generate-sources phase of pom.xml with the Java source launcher:
+ *
+ * <pre>java AssembleSources.java &lt;source root&gt; &lt;output dir&gt; &lt;package&gt; &lt;file&gt;...</pre>
+ *
+ * The root keeps its classes in the default package and spreads JDBCUtil over three files, which
+ * javac cannot compile together. This tool:
+ * <ul>
+ *   <li>merges JDBCUtil.java, JDBCUtil1.java and JDBCUtilWithBatch.java into one JDBCUtil class,
+ *       renaming the private setParameters helpers of the last two so their signatures no longer clash;</li>
+ *   <li>takes DatabaseCredentialStore out of singleton.java, which also holds a demo Main class;</li>
+ *   <li>writes every other file under the class name it declares, e.g. CsvUtil.java as CSVUtil.java;</li>
+ *   <li>leaves files that already declare a package in that package.</li>
+ * </ul>
+ * The sources in the root are never modified.
+ */
+public class AssembleSources {
+
+    private static final List<String> JDBC_UTIL_PARTS = List.of("JDBCUtil.java", "JDBCUtil1.java", "JDBCUtilWithBatch.java");
+    private static final String JDBC_UTIL_HEADER = "public class JDBCUtil {";
+    private static final String CREDENTIAL_STORE_HEADER = "public class DatabaseCredentialStore {";
+
+    private static final Pattern IMPORT = Pattern.compile("(?m)^import [^;]+;");
+    private static final Pattern PACKAGE = Pattern.compile("(?m)^package\\s+([\\w.]+)\\s*;");
+    private static final Pattern TYPE_NAME = Pattern.compile("(?m)^(?:public\\s+)?(?:final\\s+|abstract\\s+)*(?:class|interface|enum|@interface)\\s+(\\w+)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("usage: java AssembleSources.java <source root> <output dir> <package> <file>...");
+            System.exit(2);
+        }
+        Path root = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        String packageName = args[2];
+        Path packageDir = output.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(packageDir);
+
+        boolean mergeJdbcUtil = false;
+        for (int i = 3; i < args.length; i++) {
+            String file = args[i];
+            if (JDBC_UTIL_PARTS.contains(file)) {
+                mergeJdbcUtil = true;
+                continue;
+            }
+            String source = read(root.resolve(file));
+            if (file.equals("singleton.java")) {
+                source = extractClass(source, CREDENTIAL_STORE_HEADER);
+            }
+            Matcher declaredPackage = PACKAGE.matcher(source);
+            if (declaredPackage.find()) {
+                write(output.resolve(declaredPackage.group(1).replace('.', '/')), typeName(file, source), source);
+            } else {
+                write(packageDir, typeName(file, source), "package " + packageName + ";\n\n" + source);
+            }
+        }
+        if (mergeJdbcUtil) {
+            write(packageDir, "JDBCUtil", "package " + packageName + ";\n\n" + mergeJdbcUtil(root));
+        }
+    }
+
+    private static String mergeJdbcUtil(Path root) throws IOException {
+        Set<String> imports = new TreeSet<>();
+        StringBuilder body = new StringBuilder();
+        for (int part = 0; part < JDBC_UTIL_PARTS.size(); part++) {
+            String file = JDBC_UTIL_PARTS.get(part);
+            String source = read(root.resolve(file));
+            Matcher imported = IMPORT.matcher(source);
+            while (imported.find()) {
+                imports.add(imported.group());
+            }
+            int start = source.indexOf(JDBC_UTIL_HEADER);
+            if (start < 0) {
+                throw new IOException(file + " does not declare " + JDBC_UTIL_HEADER);
+            }
+            String members = source.substring(start + JDBC_UTIL_HEADER.length(), source.lastIndexOf('}'));
+            if (part > 0) {
+                // Each part binds SqlParameter maps with its own private copy of this helper
+                String suffix = file.substring(0, file.length() - ".java".length()).replace("JDBCUtil", "");
+                members = members.replaceAll("\\bsetParameters\\(", "setParametersOf" + (suffix.isEmpty() ? part : suffix) + "(");
+            }
+            body.append("\n    // ---- ").append(file).append(" ----\n").append(members);
+        }
+        return String.join("\n", imports) + "\n\n" + JDBC_UTIL_HEADER + "\n" + body + "}\n";
+    }
+
+    /**
+     * Returns the imports of a file followed by the last class with the given header, up to its
+     * closing brace. Braces inside string and char literals and comments are skipped.
+     */
+    private static String extractClass(String source, String header) throws IOException {
+        int start = source.lastIndexOf(header);
+        if (start < 0) {
+            throw new IOException("no " + header + " found");
+        }
+        int depth = 0;
+        int end = -1;
+        for (int i = source.indexOf('{', start); i < source.length() && end < 0; i++) {
+            char c = source.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipLiteral(source, i, c);
+            } else if (c == '/' && source.startsWith("//", i)) {
+                i = source.indexOf('\n', i);
+            } else if (c == '/' && source.startsWith("/*", i)) {
+                i = source.indexOf("*/", i) + 1;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                end = i + 1;
+            }
+        }
+        if (end < 0) {
+            throw new IOException(header + " is not closed");
+        }
+        Set<String> imports = new TreeSet<>();
+        Matcher imported = IMPORT.matcher(source);
+        while (imported.find()) {
+            imports.add(imported.group());
+        }
+        return String.join("\n", imports) + "\n\n" + source.substring(start, end) + "\n";
+    }
+
+    private static int skipLiteral(String source, int i, char quote) {
+        for (i++; i < source.length() && source.charAt(i) != quote; i++) {
+            if (source.charAt(i) == '\\') {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static String typeName(String file, String source) throws IOException {
+        Matcher type = TYPE_NAME.matcher(source);
+        if (!type.find()) {
+            throw new IOException(file + " declares no top-level type");
+        }
+        return type.group(1);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static void write(Path dir, String typeName, String source) throws IOException {
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(typeName + ".java"), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private AssembleSources() {
+    }
+}
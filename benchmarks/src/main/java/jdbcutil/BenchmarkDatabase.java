@@ -0,0 +1,113 @@
+package jdbcutil;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory H2 database shared by the benchmarks. Every benchmark state opens its own named
+ * database, so forks and states never see each other's rows and nothing touches the disk or network.
+ */
+final class BenchmarkDatabase {
+
+    static final String INSERT_ROW = "INSERT INTO bench_row (id, name, amount, created, active) VALUES (?, ?, ?, ?, ?)";
+    static final String SELECT_ROWS = "SELECT id, name, amount, created, active FROM bench_row WHERE id < ?";
+    static final String UPDATE_AMOUNT = "UPDATE bench_row SET amount = ? WHERE id = ?";
+
+    private static final Date CREATED = Date.valueOf("2024-01-01");
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Opens a connection to a private in-memory database that lives until the JVM exits.
+     *
+     * @param name The database name, unique per benchmark state
+     * @return A connection in auto-commit mode
+     * @throws SQLException if the H2 driver is not on the classpath
+     */
+    static Connection open(String name) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS bench_row (id BIGINT PRIMARY KEY, name VARCHAR(64), amount DOUBLE, created DATE, active BOOLEAN)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS bench_import (id BIGINT, name VARCHAR(64), amount DOUBLE, created DATE, active BOOLEAN)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS csv_store (id INT PRIMARY KEY, csv_blob BLOB)");
+        }
+        return conn;
+    }
+
+    /**
+     * Replaces the contents of bench_row with rowCount generated rows.
+     */
+    static void seed(Connection conn, int rowCount) throws SQLException {
+        truncate(conn, "bench_row");
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_ROW)) {
+            for (int i = 0; i < rowCount; i++) {
+                stmt.setLong(1, i);
+                stmt.setString(2, name(i));
+                stmt.setDouble(3, i * 1.5);
+                stmt.setDate(4, CREATED);
+                stmt.setBoolean(5, i % 2 == 0);
+                stmt.addBatch();
+                if (i % 1000 == 999) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    static void truncate(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE " + table);
+        }
+    }
+
+    /**
+     * Returns the parameters of one bench_row insert as the Map form JDBCUtil binds.
+     */
+    static Map<Integer, SqlParameter> rowParameters(long id) {
+        Map<Integer, SqlParameter> parameters = new HashMap<>();
+        parameters.put(1, new SqlParameter(Types.BIGINT, id));
+        parameters.put(2, new SqlParameter(Types.VARCHAR, name(id)));
+        parameters.put(3, new SqlParameter(Types.DOUBLE, id * 1.5));
+        parameters.put(4, new SqlParameter(Types.DATE, CREATED));
+        parameters.put(5, new SqlParameter(Types.BOOLEAN, id % 2 == 0));
+        return parameters;
+    }
+
+    static List<Map<Integer, SqlParameter>> rowParameterList(int rowCount) {
+        List<Map<Integer, SqlParameter>> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(rowParameters(i));
+        }
+        return rows;
+    }
+
+    /**
+     * Fills a reusable SqlParameters list with the values of one bench_row insert.
+     */
+    static SqlParameters rowValues(long id, SqlParameters into) {
+        return into.setLong(1, id)
+                   .setString(2, name(id))
+                   .setDouble(3, id * 1.5)
+                   .setDate(4, CREATED)
+                   .setBoolean(5, id % 2 == 0);
+    }
+
+    static int[] rowTypes() {
+        return new int[] { Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.DATE, Types.BOOLEAN };
+    }
+
+    private static String name(long id) {
+        return "row-" + id;
+    }
+}
@@ -0,0 +1,99 @@
+package jdbcutil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exports rowCount rows to CSV in memory and streaming, and imports the same CSV back
+ * from a BLOB. The import table is truncated before every invocation, outside the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvBenchmark {
+
+    private static final String EXPORT_QUERY = "SELECT id, name, amount, created, active FROM bench_row";
+    private static final int BLOB_ID = 1;
+
+    @Param({ "1000", "100000" })
+    public int rowCount;
+
+    private Connection conn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        conn = BenchmarkDatabase.open("csv");
+        BenchmarkDatabase.seed(conn, rowCount);
+        BenchmarkDatabase.truncate(conn, "csv_store");
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO csv_store (id) VALUES (?)")) {
+            stmt.setInt(1, BLOB_ID);
+            stmt.executeUpdate();
+        }
+        CSVUtil.storeQueryResultInBlob(conn, EXPORT_QUERY, CSVUtil.DEFAULT_FETCH_SIZE, "csv_store", BLOB_ID);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyImportTable() throws SQLException {
+        BenchmarkDatabase.truncate(conn, "bench_import");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public byte[] exportToByteArray() throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement(EXPORT_QUERY);
+             ResultSet rs = stmt.executeQuery()) {
+            return CSVUtil.resultSetToCSVBytes(rs);
+        }
+    }
+
+    @Benchmark
+    public long exportStreaming() throws SQLException, IOException {
+        return CSVUtil.exportQueryToCSV(conn, EXPORT_QUERY, CSVUtil.DEFAULT_FETCH_SIZE, DiscardingOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public CSVImportStats importFromBlob() throws SQLException, IOException {
+        return CSVUtil.readCSVFromBlobAndInsertToDB(conn, "csv_store", BLOB_ID, "bench_import", CSVUtil.DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Sink that drops everything, so the export measures only the query and the CSV encoding.
+     */
+    static final class DiscardingOutputStream extends OutputStream {
+        static final DiscardingOutputStream INSTANCE = new DiscardingOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jdbcutil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts rowCount rows one statement at a time and through the batch variants of
+ * JDBCUtilWithBatch. The target table is truncated before every invocation, outside the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DmlBenchmark {
+
+    @Param({ "100", "10000" })
+    public int rowCount;
+
+    @Param({ "100", "1000" })
+    public int batchSize;
+
+    private Connection conn;
+    private List<Map<Integer, SqlParameter>> rows;
+    private List<SqlParameters> values;
+    private SqlBinder binder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = BenchmarkDatabase.open("dml");
+        rows = BenchmarkDatabase.rowParameterList(rowCount);
+        values = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            values.add(BenchmarkDatabase.rowValues(i, new SqlParameters(5)));
+        }
+        binder = SqlBinder.compile(BenchmarkDatabase.rowTypes());
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() throws SQLException {
+        BenchmarkDatabase.truncate(conn, "bench_row");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public int singleRowInserts() throws SQLException {
+        int inserted = 0;
+        for (Map<Integer, SqlParameter> parameters : rows) {
+            inserted += JDBCUtil.executeUpdate(conn, BenchmarkDatabase.INSERT_ROW, parameters);
+        }
+        return inserted;
+    }
+
+    @Benchmark
+    public int[] batchFromList() throws SQLException {
+        return JDBCUtil.executeInBatch(conn, BenchmarkDatabase.INSERT_ROW, rows, batchSize);
+    }
+
+    @Benchmark
+    public BatchResult batchFromStreamWithoutCounts() throws SQLException {
+        return JDBCUtil.executeInBatch(conn, BenchmarkDatabase.INSERT_ROW,
+                LongStream.range(0, rowCount).mapToObj(BenchmarkDatabase::rowParameters), batchSize, 0, false);
+    }
+
+    @Benchmark
+    public int[] batchWithCompiledBinder() throws SQLException {
+        return JDBCUtil.executeInBatch(conn, BenchmarkDatabase.INSERT_ROW, binder, values, batchSize);
+    }
+}
@@ -0,0 +1,112 @@
+package jdbcutil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the three ways of binding parameters: the boxed SqlParameter map,
+ * the primitive SqlParameters list and a precompiled SqlBinder. The bind* benchmarks only bind
+ * and clear a prepared statement; the update* benchmarks run a single-row UPDATE through JDBCUtil.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterBindingBenchmark {
+
+    private static final int SEEDED_ROWS = 1000;
+
+    private Connection conn;
+    private PreparedStatement insert;
+    private SqlParameters values;
+    private SqlBinder rowBinder;
+    private SqlBinder updateBinder;
+    private long id;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = BenchmarkDatabase.open("binding");
+        BenchmarkDatabase.seed(conn, SEEDED_ROWS);
+        insert = conn.prepareStatement(BenchmarkDatabase.INSERT_ROW);
+        values = new SqlParameters(5);
+        rowBinder = SqlBinder.compile(BenchmarkDatabase.rowTypes());
+        updateBinder = SqlBinder.compile(Types.DOUBLE, Types.BIGINT);
+        JDBCUtil.setStatementCacheSize(16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        insert.close();
+        conn.close();
+        JDBCUtil.setStatementCacheSize(0);
+    }
+
+    private long nextId() {
+        id = (id + 1) % SEEDED_ROWS;
+        return id;
+    }
+
+    @Benchmark
+    public PreparedStatement bindParameterMap() throws SQLException {
+        JDBCUtil.setParameters(insert, BenchmarkDatabase.rowParameters(nextId()));
+        insert.clearParameters();
+        return insert;
+    }
+
+    @Benchmark
+    public PreparedStatement bindSqlParameters() throws SQLException {
+        BenchmarkDatabase.rowValues(nextId(), values).bind(insert);
+        insert.clearParameters();
+        return insert;
+    }
+
+    @Benchmark
+    public PreparedStatement bindCompiledBinder() throws SQLException {
+        rowBinder.bind(insert, BenchmarkDatabase.rowValues(nextId(), values));
+        insert.clearParameters();
+        return insert;
+    }
+
+    @Benchmark
+    public int updateWithParameterMap() throws SQLException {
+        long rowId = nextId();
+        Map<Integer, SqlParameter> parameters = new HashMap<>();
+        parameters.put(1, new SqlParameter(Types.DOUBLE, rowId * 2.0));
+        parameters.put(2, new SqlParameter(Types.BIGINT, rowId));
+        return JDBCUtil.executeUpdate(conn, BenchmarkDatabase.UPDATE_AMOUNT, parameters);
+    }
+
+    @Benchmark
+    public int updateWithSqlParameters() throws SQLException {
+        long rowId = nextId();
+        values.clear();
+        return JDBCUtil.executeUpdate(conn, BenchmarkDatabase.UPDATE_AMOUNT, values.setDouble(1, rowId * 2.0).setLong(2, rowId));
+    }
+
+    @Benchmark
+    public int updateWithCompiledBinder() throws SQLException {
+        long rowId = nextId();
+        values.clear();
+        return JDBCUtil.executeUpdate(conn, BenchmarkDatabase.UPDATE_AMOUNT, updateBinder, values.setDouble(1, rowId * 2.0).setLong(2, rowId));
+    }
+}
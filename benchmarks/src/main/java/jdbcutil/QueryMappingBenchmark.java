@@ -0,0 +1,139 @@
+package jdbcutil;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads rowCount rows and maps them to objects with a hand-written handler, with the cached
+ * RowMappers and through the lazy stream API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryMappingBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    public int rowCount;
+
+    private Connection conn;
+    private Map<Integer, SqlParameter> parameters;
+    private ResultSetHandler<List<BenchRow>> mapped;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        conn = BenchmarkDatabase.open("query");
+        BenchmarkDatabase.seed(conn, rowCount);
+        parameters = Collections.singletonMap(1, new SqlParameter(Types.BIGINT, (long) rowCount));
+        mapped = RowMappers.listOf(BenchRow.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public List<BenchRow> handWrittenHandler() throws SQLException {
+        return JDBCUtil.executeQuery(conn, BenchmarkDatabase.SELECT_ROWS, parameters, rs -> {
+            List<BenchRow> rows = new ArrayList<>();
+            while (rs.next()) {
+                BenchRow row = new BenchRow();
+                row.setId(rs.getLong(1));
+                row.setName(rs.getString(2));
+                row.setAmount(rs.getDouble(3));
+                row.setCreated(rs.getDate(4));
+                row.setActive(rs.getBoolean(5));
+                rows.add(row);
+            }
+            return rows;
+        });
+    }
+
+    @Benchmark
+    public List<BenchRow> rowMappers() throws SQLException {
+        return JDBCUtil.executeQuery(conn, BenchmarkDatabase.SELECT_ROWS, parameters, mapped);
+    }
+
+    @Benchmark
+    public double stream() throws SQLException {
+        try (Stream<BenchRow> rows = JDBCUtil.stream(conn, BenchmarkDatabase.SELECT_ROWS, parameters, 1000, BenchRow.class)) {
+            return rows.mapToDouble(BenchRow::getAmount).sum();
+        }
+    }
+
+    /**
+     * Row bean mapped through its setters.
+     */
+    public static class BenchRow {
+        private long id;
+        private String name;
+        private double amount;
+        private Date created;
+        private boolean active;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+
+        public Date getCreated() {
+            return created;
+        }
+
+        public void setCreated(Date created) {
+            this.created = created;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+}
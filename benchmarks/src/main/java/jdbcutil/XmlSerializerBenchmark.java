@@ -0,0 +1,97 @@
+package jdbcutil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.rponte.util.xml.XmlSerializer;
+
+/**
+ * Serializes and deserializes an order with lineCount lines through XmlSerializer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XmlSerializerBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    public int lineCount;
+
+    private XmlSerializer serializer;
+    private Order order;
+    private String xml;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serializer = new XmlSerializer();
+        order = new Order();
+        order.id = 42;
+        order.customer = "ACME Corporation";
+        for (int i = 0; i < lineCount; i++) {
+            Line line = new Line();
+            line.sku = "SKU-" + i;
+            line.quantity = i % 10 + 1;
+            line.price = i * 0.25;
+            order.lines.add(line);
+        }
+        xml = serializer.toXml(order);
+    }
+
+    @Benchmark
+    public String toXml() {
+        return serializer.toXml(order);
+    }
+
+    @Benchmark
+    public Order fromXml() {
+        return serializer.fromXml(xml, Order.class);
+    }
+
+    @Benchmark
+    public Order roundTrip() {
+        return serializer.fromXml(serializer.toXml(order), Order.class);
+    }
+
+    @XmlRootElement(name = "order")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Order {
+        @XmlAttribute
+        long id;
+        @XmlElement
+        String customer;
+        @XmlElement(name = "line")
+        List<Line> lines = new ArrayList<>();
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Line {
+        @XmlAttribute
+        String sku;
+        @XmlElement
+        int quantity;
+        @XmlElement
+        double price;
+    }
+}
@@ -5,8 +5,8 @@ public class DatabaseCredentialStore {
 
     
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DatabaseCredentialStore {
 
@@ -18,7 +18,7 @@ public class DatabaseCredentialStore {
 
     // Private constructor to prevent instantiation from outside
     private DatabaseCredentialStore() {
-        credentialMap = new HashMap<>();
+        credentialMap = new ConcurrentHashMap<>();
     }
 
     // Static method to get the single instance
@@ -48,10 +48,16 @@ public class DatabaseCredentialStore {
     public static class DatabaseCredentials {
         private final String username;
         private final String password;
+        private final String jdbcUrl; // Optional JDBC URL used by ConnectionPool
 
         public DatabaseCredentials(String username, String password) {
+            this(username, password, null);
+        }
+
+        public DatabaseCredentials(String username, String password, String jdbcUrl) {
             this.username = username;
             this.password = password;
+            this.jdbcUrl = jdbcUrl;
         }
 
         public String getUsername() {
@@ -62,11 +68,16 @@ public class DatabaseCredentialStore {
             return password;
         }
 
+        public String getJdbcUrl() {
+            return jdbcUrl;
+        }
+
         @Override
         public String toString() {
             return "DatabaseCredentials{" +
                    "username='" + username + '\'' +
                    ", password='*****'" +
+                   ", jdbcUrl=" + (jdbcUrl == null ? "null" : "'*****'") + // May carry a password or token
                    '}';
         }
     }